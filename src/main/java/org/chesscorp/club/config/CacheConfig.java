@@ -0,0 +1,43 @@
+package org.chesscorp.club.config;
+
+import org.chesscorp.club.dto.ChessAnalysis;
+import org.chesscorp.club.dto.ExternalPlayerReference;
+import org.chesscorp.club.model.game.ChessGameState;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process caches configuration.
+ */
+@Configuration
+public class CacheConfig {
+    public static final String LIVE_GAMES_CACHE = "live-games";
+    public static final String GAME_ANALYSIS_CACHE = "game-analysis";
+    public static final String EXTERNAL_PLAYERS_CACHE = "external-players";
+
+    @Value("${chesscorp.cache.liveGames.entries:1000}")
+    private long liveGamesEntries;
+
+    @Value("${chesscorp.cache.gameAnalysis.entries:1000}")
+    private long gameAnalysisEntries;
+
+    @Value("${chesscorp.cache.externalPlayers.entries:10000}")
+    private long externalPlayersEntries;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager ehcacheManager() {
+        return CacheManagerBuilder.newCacheManagerBuilder()
+                .withCache(LIVE_GAMES_CACHE, CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        Long.class, ChessGameState.class, ResourcePoolsBuilder.heap(liveGamesEntries)))
+                .withCache(GAME_ANALYSIS_CACHE, CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        Long.class, ChessAnalysis.class, ResourcePoolsBuilder.heap(gameAnalysisEntries)))
+                .withCache(EXTERNAL_PLAYERS_CACHE, CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        String.class, ExternalPlayerReference.class, ResourcePoolsBuilder.heap(externalPlayersEntries)))
+                .build(true);
+    }
+}
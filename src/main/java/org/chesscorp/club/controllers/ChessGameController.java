@@ -1,20 +1,41 @@
 package org.chesscorp.club.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.chesscorp.club.dto.ChessGameSummary;
 import org.chesscorp.club.exception.ChessClubException;
+import org.chesscorp.club.exception.ConcurrentGameUpdateException;
 import org.chesscorp.club.exception.InvalidChessMoveException;
 import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.ChessGameState;
 import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.service.AuthenticationService;
 import org.chesscorp.club.service.ChessGameService;
+import org.chesscorp.club.service.GamePushService;
 import org.chesscorp.club.service.MessagingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * @author Yannick Kirschhoffer alcibiade@alcibiade.org
@@ -27,34 +48,87 @@ public class ChessGameController {
     private ChessGameService chessGameService;
     private AuthenticationService authenticationService;
     private MessagingService messagingService;
+    private GamePushService gamePushService;
+    private ObjectMapper objectMapper;
+    private int maxPageSize;
+    private int moveAttempts;
+    private long finishedGamesMaxAge;
 
     @Autowired
     public ChessGameController(ChessGameService chessGameService,
                                AuthenticationService authenticationService,
-                               MessagingService messagingService) {
+                               MessagingService messagingService,
+                               GamePushService gamePushService,
+                               ObjectMapper objectMapper,
+                               @Value("${chesscorp.game.searchPageSize:500}") int maxPageSize,
+                               @Value("${chesscorp.game.moveAttempts:3}") int moveAttempts,
+                               @Value("${chesscorp.game.finishedMaxAge:2592000}") long finishedGamesMaxAge) {
         this.chessGameService = chessGameService;
         this.authenticationService = authenticationService;
         this.messagingService = messagingService;
+        this.gamePushService = gamePushService;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+        this.moveAttempts = moveAttempts;
+        this.finishedGamesMaxAge = finishedGamesMaxAge;
     }
 
     /**
-     * Search for games.
+     * Search for games, one page at a time. The next page is requested with the identifier of the last game
+     * received as afterId.
      *
      * @param playerId identifier of a player involved in the game.
-     * @return a list of games
+     * @param open     optional filter on open or ended games
+     * @param afterId  identifier of the last game of the previous page, none for the first page
+     * @param pageSize number of games per page, bounded by the server setting
+     * @return a list of game summaries, moves are available by fetching each game
      */
     @Transactional(readOnly = true)
     @RequestMapping(value = "/search", method = RequestMethod.POST)
-    public List<ChessGame> search(
+    public List<ChessGameSummary> search(
             @RequestParam Number playerId,
-            @RequestParam(required = false) Boolean open
+            @RequestParam(required = false) Boolean open,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer pageSize
     ) {
-        List<ChessGame> games = chessGameService.searchGames(playerId, open);
+        int size = pageSize == null ? maxPageSize : Math.max(1, Math.min(pageSize, maxPageSize));
+        List<ChessGameSummary> games = chessGameService.searchGameSummaries(
+                playerId, open, afterId == null ? 0 : afterId, size);
         logger.debug("Found {} games for player {}", games.size(), playerId);
 
         return games;
     }
 
+    /**
+     * Search for all games of a player, for bulk consumers. Summaries are written to the response as they are read
+     * from the database, so that memory usage does not depend on the number of games.
+     *
+     * @param playerId identifier of a player involved in the game.
+     * @param open     optional filter on open or ended games
+     * @param response the response receiving the JSON array of game summaries
+     * @throws IOException if the response can't be written
+     */
+    @Transactional(readOnly = true)
+    @RequestMapping(value = "/search/stream", method = RequestMethod.POST)
+    public void searchStream(
+            @RequestParam Number playerId,
+            @RequestParam(required = false) Boolean open,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (Stream<ChessGameSummary> games = chessGameService.streamGameSummaries(playerId, open);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+
+            for (Iterator<ChessGameSummary> it = games.iterator(); it.hasNext(); ) {
+                generator.writeObject(it.next());
+            }
+
+            generator.writeEndArray();
+        }
+    }
+
     /**
      * Create a new game between two players. This operation does not fully support wrapping transaction as it requires
      * updates to be applied before sending the notification message.
@@ -85,15 +159,107 @@ public class ChessGameController {
         return created;
     }
 
+    /**
+     * Fetch a game, unless the client already holds its current version. The ETag is built from the move count and
+     * the status, which are read without loading the game. Ended games can't change anymore and are cached by
+     * clients for a long time.
+     *
+     * @param gameId     identifier of the game
+     * @param webRequest the current request, used to check the If-None-Match header
+     * @param response   the response receiving cache headers
+     * @return the game model, or null if the client version is current
+     */
     @Transactional(readOnly = true)
     @RequestMapping(value = "/{gameId}", method = RequestMethod.GET)
-    public ChessGame getGame(@PathVariable Number gameId) {
+    public ChessGame getGame(@PathVariable Number gameId, WebRequest webRequest, HttpServletResponse response) {
+        ChessGameStatus status = chessGameService.getGameStatus(gameId);
+
+        if (status != null) {
+            String etag = "\"" + chessGameService.getMoveCount(gameId) + "-" + status + "\"";
+            CacheControl cacheControl = status == ChessGameStatus.OPEN
+                    ? CacheControl.noCache()
+                    : CacheControl.maxAge(finishedGamesMaxAge, TimeUnit.SECONDS);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+        }
+
+        return getGame(gameId);
+    }
+
+    @Transactional(readOnly = true)
+    public ChessGame getGame(Number gameId) {
         ChessGame game = chessGameService.getGame(gameId.longValue());
         logger.debug("Game fetched: {}", game);
 
         return game;
     }
 
+    /**
+     * Subscribe to the updates of a game. Each update is sent as a "game" event holding the full game model.
+     *
+     * @param gameId identifier of the game
+     * @return the event stream
+     */
+    @Transactional(readOnly = true)
+    @RequestMapping(value = "/{gameId}/events", method = RequestMethod.GET)
+    public SseEmitter watchGame(
+            @CookieValue(value = AuthenticationController.AUTHENTICATION_TOKEN) String authenticationToken,
+            @PathVariable Number gameId) {
+        authenticationService.getSession(authenticationToken);
+        return gamePushService.watchGame(gameId);
+    }
+
+    /**
+     * Subscribe to the updates of all games involving a player. Players can only watch their own games.
+     *
+     * @param playerId identifier of the player
+     * @return the event stream
+     */
+    @Transactional(readOnly = true)
+    @RequestMapping(value = "/player/{playerId}/events", method = RequestMethod.GET)
+    public SseEmitter watchPlayer(
+            @CookieValue(value = AuthenticationController.AUTHENTICATION_TOKEN) String authenticationToken,
+            @PathVariable Number playerId) {
+        Player player = authenticationService.getSession(authenticationToken).getAccount().getPlayer();
+
+        if (player.getId().longValue() != playerId.longValue()) {
+            throw new ChessClubException("Can't watch the games of another player.");
+        }
+
+        return gamePushService.watchPlayer(playerId);
+    }
+
+    /**
+     * Get the legal moves in the current position of a game.
+     *
+     * @param gameId identifier of the game
+     * @return the legal moves in canonical PGN notation, empty if the game is over
+     */
+    @Transactional(readOnly = true)
+    @RequestMapping(value = "/{gameId}/moves", method = RequestMethod.GET)
+    public Set<String> getLegalMoves(@PathVariable Number gameId) {
+        // Ended games keep the position of their last move, which may still have legal moves
+        if (chessGameService.getGameStatus(gameId) != ChessGameStatus.OPEN) {
+            return new TreeSet<>();
+        }
+
+        ChessGameState state = chessGameService.getGameState(gameId.longValue());
+
+        return new TreeSet<>(state.getLegalMoves());
+    }
+
+    /**
+     * Play a move. Games are versioned, so a move racing with another update of the same game (typically a robot
+     * move) is detected on commit. The move is then replayed on the fresh game state a bounded number of times. As
+     * each attempt has to run in its own transaction, this operation does not fully support wrapping transactions.
+     *
+     * @param gameId identifier of the game
+     * @param move   the move in PGN notation
+     * @return the updated game model
+     */
     @Transactional(propagation = Propagation.SUPPORTS)
     @RequestMapping(value = "/{gameId}", method = RequestMethod.POST)
     public ChessGame postMove(
@@ -101,15 +267,20 @@ public class ChessGameController {
             @PathVariable Number gameId,
             @RequestParam String move) {
         Player player = authenticationService.getSession(authenticationToken).getAccount().getPlayer();
-        ChessGame game = chessGameService.getGame(gameId.longValue());
+        ChessGame game = null;
 
-        Player nextPlayer = game.getNextPlayer();
+        for (int attempt = 1; game == null; attempt++) {
+            try {
+                game = playMove(player, gameId, move, attempt > 1);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= moveAttempts) {
+                    throw new ConcurrentGameUpdateException(gameId, e);
+                }
 
-        if (!player.equals(nextPlayer)) {
-            throw new InvalidChessMoveException("It is " + nextPlayer.getDisplayName() + "'s turn");
+                logger.debug("Concurrent update on game {}, retrying move {} (attempt {})", gameId, move, attempt);
+            }
         }
 
-        game = chessGameService.move(game, move);
         logger.info("Move {} played in {}", move, game);
 
         messagingService.notifyGameUpdated(game);
@@ -117,7 +288,14 @@ public class ChessGameController {
         return game;
     }
 
-    @Transactional
+    /**
+     * Resign a game. This operation does not fully support wrapping transaction as it requires updates to be applied
+     * before sending the notification message.
+     *
+     * @param gameId identifier of the game
+     * @return the updated game model
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     @RequestMapping(value = "/{gameId}/resign", method = RequestMethod.POST)
     public ChessGame resign(
             @CookieValue(value = AuthenticationController.AUTHENTICATION_TOKEN) String authenticationToken,
@@ -128,8 +306,22 @@ public class ChessGameController {
         game = chessGameService.resign(game, player);
         logger.info("Player {} resigned game {}", player, game);
 
+        messagingService.notifyGameUpdated(game);
+
         return game;
     }
 
+    private ChessGame playMove(Player player, Number gameId, String move, boolean reload) {
+        // The request persistence context still holds the game read by the failed attempt
+        ChessGame game = reload
+                ? chessGameService.reloadGame(gameId.longValue())
+                : chessGameService.getGame(gameId.longValue());
+        Player nextPlayer = game.getNextPlayer();
+
+        if (!player.equals(nextPlayer)) {
+            throw new InvalidChessMoveException("It is " + nextPlayer.getDisplayName() + "'s turn");
+        }
 
+        return chessGameService.move(game, move);
+    }
 }
@@ -1,7 +1,9 @@
 package org.chesscorp.club.controllers;
 
 import org.chesscorp.club.dto.ChessAnalysis;
-import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.dto.ChessExplorerMove;
+import org.chesscorp.club.dto.ChessRelatedGames;
+import org.chesscorp.club.service.ChessExplorerService;
 import org.chesscorp.club.service.ChessPositionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,8 +12,10 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,25 +28,29 @@ public class ChessStatsController {
 
     private ChessPositionService chessPositionService;
 
+    private ChessExplorerService chessExplorerService;
+
     @Autowired
-    public ChessStatsController(ChessPositionService chessPositionService) {
+    public ChessStatsController(ChessPositionService chessPositionService, ChessExplorerService chessExplorerService) {
         this.chessPositionService = chessPositionService;
+        this.chessExplorerService = chessExplorerService;
     }
 
     /**
      * Search for related games.
      *
      * @param gameId of a game
-     * @return a list of related games, ie. games which contains the same position as the current one.
+     * @return summaries of related games, ie. games which contains the same position as the current one, with the
+     * total number of such games.
      */
     @Transactional(readOnly = true)
     @RequestMapping(value = "/related/{gameId}", method = RequestMethod.GET)
-    public List<ChessGame> relatedGames(
+    public ChessRelatedGames relatedGames(
             @PathVariable Number gameId
     ) {
-        List<ChessGame> games = chessPositionService.findRelatedGames(gameId);
-        logger.debug("Found {} related games for game {}: {}", games.size(), gameId, games);
-        return games;
+        ChessRelatedGames relatedGames = chessPositionService.findRelatedGames(gameId);
+        logger.debug("Found {} related games for game {}", relatedGames.getGameCount(), gameId);
+        return relatedGames;
     }
 
     /**
@@ -59,4 +67,18 @@ public class ChessStatsController {
         ChessAnalysis analysis = chessPositionService.getGameAnalysis(gameId);
         return analysis;
     }
+
+    /**
+     * Get the opening explorer statistics of a position.
+     *
+     * @param moves the moves leading to the position, none for the initial position
+     * @return the moves played from this position in finished games, most frequent first
+     */
+    @Transactional(readOnly = true)
+    @RequestMapping(value = "/explorer", method = RequestMethod.GET)
+    public List<ChessExplorerMove> explorer(
+            @RequestParam(required = false) List<String> moves
+    ) {
+        return chessExplorerService.getContinuations(moves == null ? new ArrayList<>() : moves);
+    }
 }
@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -54,10 +55,28 @@ public class PlayerController {
         return players;
     }
 
+    /**
+     * Fetch a player profile, unless the client already holds its current version. The ETag is built from the
+     * latest rating of the player and the number of its ended games, as profiles only change when a game ends.
+     *
+     * @param playerId   the player identifier
+     * @param webRequest the current request, used to check the If-None-Match header
+     * @return the player profile, or null if the client version is current
+     */
     @Transactional(readOnly = true)
     @RequestMapping(value = "/profile/{playerId}", method = RequestMethod.GET)
-    public PlayerProfile getProfile(
-            @PathVariable Long playerId) {
+    public PlayerProfile getProfile(@PathVariable Long playerId, WebRequest webRequest) {
+        String etag = "\"" + playerService.getProfileVersion(playerId) + "\"";
+
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        return getProfile(playerId);
+    }
+
+    @Transactional(readOnly = true)
+    public PlayerProfile getProfile(Long playerId) {
         PlayerProfile profile = playerService.getProfile(playerId);
         logger.debug("Found profile for player {}: {}", playerId, profile.getPlayer().getDisplayName());
         return profile;
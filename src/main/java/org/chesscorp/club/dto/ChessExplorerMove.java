@@ -0,0 +1,56 @@
+package org.chesscorp.club.dto;
+
+/**
+ * Opening explorer statistics of a move played from a position.
+ */
+public class ChessExplorerMove {
+
+    private String pgnMove;
+
+    private long gameCount;
+
+    private long whiteWins;
+
+    private long draws;
+
+    private long blackWins;
+
+    public ChessExplorerMove(String pgnMove, long whiteWins, long draws, long blackWins) {
+        this.pgnMove = pgnMove;
+        this.gameCount = whiteWins + draws + blackWins;
+        this.whiteWins = whiteWins;
+        this.draws = draws;
+        this.blackWins = blackWins;
+    }
+
+    public String getPgnMove() {
+        return pgnMove;
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    public long getWhiteWins() {
+        return whiteWins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getBlackWins() {
+        return blackWins;
+    }
+
+    @Override
+    public String toString() {
+        return "ChessExplorerMove{" +
+                "pgnMove='" + pgnMove + '\'' +
+                ", gameCount=" + gameCount +
+                ", whiteWins=" + whiteWins +
+                ", draws=" + draws +
+                ", blackWins=" + blackWins +
+                '}';
+    }
+}
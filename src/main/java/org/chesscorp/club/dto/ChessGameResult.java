@@ -0,0 +1,45 @@
+package org.chesscorp.club.dto;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Outcome of a finished game, as needed to compute ratings.
+ */
+public class ChessGameResult {
+    private Long id;
+    private Long whitePlayerId;
+    private Long blackPlayerId;
+    private ChessGameStatus status;
+    private OffsetDateTime startDate;
+
+    public ChessGameResult(Long id, Long whitePlayerId, Long blackPlayerId, ChessGameStatus status,
+                           OffsetDateTime startDate) {
+        this.id = id;
+        this.whitePlayerId = whitePlayerId;
+        this.blackPlayerId = blackPlayerId;
+        this.status = status;
+        this.startDate = startDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getWhitePlayerId() {
+        return whitePlayerId;
+    }
+
+    public Long getBlackPlayerId() {
+        return blackPlayerId;
+    }
+
+    public ChessGameStatus getStatus() {
+        return status;
+    }
+
+    public OffsetDateTime getStartDate() {
+        return startDate;
+    }
+}
@@ -0,0 +1,75 @@
+package org.chesscorp.club.dto;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Game information displayed in game lists, built without loading the moves.
+ */
+public class ChessGameSummary {
+    private Long id;
+    private Long whitePlayerId;
+    private String whitePlayerName;
+    private Long blackPlayerId;
+    private String blackPlayerName;
+    private ChessGameStatus status;
+    private OffsetDateTime startDate;
+    private Integer moveCount;
+
+    public ChessGameSummary(Long id, Long whitePlayerId, String whitePlayerName, Long blackPlayerId,
+                            String blackPlayerName, ChessGameStatus status, OffsetDateTime startDate,
+                            Integer moveCount) {
+        this.id = id;
+        this.whitePlayerId = whitePlayerId;
+        this.whitePlayerName = whitePlayerName;
+        this.blackPlayerId = blackPlayerId;
+        this.blackPlayerName = blackPlayerName;
+        this.status = status;
+        this.startDate = startDate;
+        this.moveCount = moveCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getWhitePlayerId() {
+        return whitePlayerId;
+    }
+
+    public String getWhitePlayerName() {
+        return whitePlayerName;
+    }
+
+    public Long getBlackPlayerId() {
+        return blackPlayerId;
+    }
+
+    public String getBlackPlayerName() {
+        return blackPlayerName;
+    }
+
+    public ChessGameStatus getStatus() {
+        return status;
+    }
+
+    public OffsetDateTime getStartDate() {
+        return startDate;
+    }
+
+    public Integer getMoveCount() {
+        return moveCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ChessGameSummary{" +
+                "id=" + id +
+                ", whitePlayerName='" + whitePlayerName + '\'' +
+                ", blackPlayerName='" + blackPlayerName + '\'' +
+                ", status=" + status +
+                ", moveCount=" + moveCount +
+                '}';
+    }
+}
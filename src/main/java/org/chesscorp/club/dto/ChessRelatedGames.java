@@ -0,0 +1,48 @@
+package org.chesscorp.club.dto;
+
+import java.util.List;
+
+/**
+ * Games sharing the current position of a game.
+ */
+public class ChessRelatedGames {
+
+    private Long gameId;
+
+    private long gameCount;
+
+    private List<ChessGameSummary> games;
+
+    private ChessRelatedGames() {
+    }
+
+    public ChessRelatedGames(Long gameId, long gameCount, List<ChessGameSummary> games) {
+        this.gameId = gameId;
+        this.gameCount = gameCount;
+        this.games = games;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return the total number of games which reached the position, including the current one
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    public List<ChessGameSummary> getGames() {
+        return games;
+    }
+
+    @Override
+    public String toString() {
+        return "ChessRelatedGames{" +
+                "gameId=" + gameId +
+                ", gameCount=" + gameCount +
+                ", games=" + games +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package org.chesscorp.club.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Rating of a player after a game, as written by batch rating jobs.
+ */
+public class EloRatingRecord {
+    private long playerId;
+    private long gameId;
+    private int eloRating;
+    private int gamesPlayed;
+    private OffsetDateTime scoreDate;
+
+    public EloRatingRecord(long playerId, long gameId, int eloRating, int gamesPlayed, OffsetDateTime scoreDate) {
+        this.playerId = playerId;
+        this.gameId = gameId;
+        this.eloRating = eloRating;
+        this.gamesPlayed = gamesPlayed;
+        this.scoreDate = scoreDate;
+    }
+
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public int getEloRating() {
+        return eloRating;
+    }
+
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public OffsetDateTime getScoreDate() {
+        return scoreDate;
+    }
+}
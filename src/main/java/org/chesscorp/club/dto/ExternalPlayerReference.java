@@ -0,0 +1,30 @@
+package org.chesscorp.club.dto;
+
+/**
+ * Identity of an external player. Unlike the player entity, it never goes stale and can be shared between threads.
+ */
+public class ExternalPlayerReference {
+    private final long id;
+    private final String normalizedName;
+
+    public ExternalPlayerReference(long id, String normalizedName) {
+        this.id = id;
+        this.normalizedName = normalizedName;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    @Override
+    public String toString() {
+        return "ExternalPlayerReference{" +
+                "id=" + id +
+                ", normalizedName='" + normalizedName + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package org.chesscorp.club.dto;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.alcibiade.chess.persistence.PgnGameModel;
+
+import java.util.List;
+
+/**
+ * PGN game whose moves have been checked against the chess rules, ready to be imported.
+ */
+public class ValidatedPgnGame {
+
+    private PgnGameModel pgnGameModel;
+
+    private ChessGameStatus status;
+
+    private List<String> moves;
+
+    private List<String> positions;
+
+    private String finalPosition;
+
+    public ValidatedPgnGame(PgnGameModel pgnGameModel, ChessGameStatus status, List<String> moves,
+                            List<String> positions, String finalPosition) {
+        this.pgnGameModel = pgnGameModel;
+        this.status = status;
+        this.moves = moves;
+        this.positions = positions;
+        this.finalPosition = finalPosition;
+    }
+
+    public PgnGameModel getPgnGameModel() {
+        return pgnGameModel;
+    }
+
+    public ChessGameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the game moves in canonical PGN notation, whatever their notation in the source file
+     */
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return the positions reached after each move, in fixed notation
+     */
+    public List<String> getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the position reached at the end of the game, in fixed notation
+     */
+    public String getFinalPosition() {
+        return finalPosition;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidatedPgnGame{" +
+                "whitePlayerName=" + pgnGameModel.getWhitePlayerName() +
+                ", blackPlayerName=" + pgnGameModel.getBlackPlayerName() +
+                ", status=" + status +
+                ", moves=" + positions.size() +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package org.chesscorp.club.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A game was updated concurrently by another player or robot and the operation could not be applied.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class ConcurrentGameUpdateException extends ChessClubException {
+    public ConcurrentGameUpdateException(Number gameId, Throwable cause) {
+        super("Game " + gameId + " was updated concurrently", cause);
+    }
+}
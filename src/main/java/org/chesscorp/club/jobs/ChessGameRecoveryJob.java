@@ -0,0 +1,39 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.ChessGameService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repair games stored by previous releases, such as games without position snapshot.
+ */
+@Component
+public class ChessGameRecoveryJob {
+
+    private Logger logger = LoggerFactory.getLogger(ChessGameRecoveryJob.class);
+
+    private ChessGameService chessGameService;
+
+    private boolean executed = false;
+
+    @Autowired
+    public ChessGameRecoveryJob(ChessGameService chessGameService) {
+        this.chessGameService = chessGameService;
+    }
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 3600_000)
+    public void triggerRecovery() {
+        if (!executed) {
+            long updatedCount = chessGameService.repairGames();
+
+            if (updatedCount > 0) {
+                logger.warn("Repaired {} games", updatedCount);
+            }
+
+            executed = true;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.ChessPositionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migrate positions stored as text by previous releases to their packed binary form.
+ */
+@Component
+public class ChessPositionPackingJob {
+
+    private Logger logger = LoggerFactory.getLogger(ChessPositionPackingJob.class);
+
+    private ChessPositionService chessPositionService;
+
+    private boolean executed = false;
+
+    @Autowired
+    public ChessPositionPackingJob(ChessPositionService chessPositionService) {
+        this.chessPositionService = chessPositionService;
+    }
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 3600_000)
+    public void triggerPacking() {
+        if (!executed) {
+            long packedCount = chessPositionService.packPositions();
+
+            if (packedCount > 0) {
+                logger.warn("Packed {} text positions", packedCount);
+            }
+
+            executed = true;
+        }
+    }
+}
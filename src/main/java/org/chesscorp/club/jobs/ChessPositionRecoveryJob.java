@@ -1,6 +1,7 @@
 package org.chesscorp.club.jobs;
 
 import org.chesscorp.club.persistence.ChessPositionRepository;
+import org.chesscorp.club.service.ChessPositionService;
 import org.chesscorp.club.service.MessagingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +11,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Evaluate all positions which do not have evaluation metadata yet.
+ * Compute missing position hashes and evaluate all positions which do not have evaluation metadata yet.
  */
 @Component
 public class ChessPositionRecoveryJob {
@@ -19,19 +20,24 @@ public class ChessPositionRecoveryJob {
 
     private MessagingService messagingService;
     private ChessPositionRepository positionRepository;
+    private ChessPositionService chessPositionService;
 
     private boolean executed = false;
 
     @Autowired
-    public ChessPositionRecoveryJob(MessagingService messagingService, ChessPositionRepository positionRepository) {
+    public ChessPositionRecoveryJob(MessagingService messagingService, ChessPositionRepository positionRepository,
+                                    ChessPositionService chessPositionService) {
         this.messagingService = messagingService;
         this.positionRepository = positionRepository;
+        this.chessPositionService = chessPositionService;
     }
 
     @Scheduled(initialDelay = 10_000, fixedDelay = 3600_000)
     @Transactional
     public void triggerRecovery() {
         if (!executed) {
+            chessPositionService.updatePositionHashes();
+
             int notificationCount = positionRepository.findAllByScore(null)
                     .map(p -> {
                         messagingService.notifyPositionCreated(p.getId());
@@ -0,0 +1,57 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.EloRatingService;
+import org.chesscorp.club.service.PlayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Check current player ratings against the rating history once, then rate finished games that have not been rated
+ * yet, such as imported games, on every run. The whole history is computed again by the first run if a rebuild is
+ * requested.
+ */
+@Component
+public class EloRatingConsistencyJob {
+
+    private Logger logger = LoggerFactory.getLogger(EloRatingConsistencyJob.class);
+
+    private PlayerService playerService;
+    private EloRatingService eloRatingService;
+    private boolean rebuild;
+
+    private boolean executed = false;
+
+    @Autowired
+    public EloRatingConsistencyJob(PlayerService playerService, EloRatingService eloRatingService,
+                                   @Value("${chesscorp.elo.rebuild:false}") boolean rebuild) {
+        this.playerService = playerService;
+        this.eloRatingService = eloRatingService;
+        this.rebuild = rebuild;
+    }
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 3600_000)
+    public void triggerCheck() {
+        long ratedCount;
+
+        if (!executed) {
+            long fixedCount = playerService.checkRatings();
+
+            if (fixedCount > 0) {
+                logger.warn("Fixed ratings of {} players", fixedCount);
+            }
+
+            ratedCount = rebuild ? eloRatingService.rebuildRatings() : eloRatingService.rateGames();
+            executed = true;
+        } else {
+            ratedCount = eloRatingService.rateGames();
+        }
+
+        if (ratedCount > 0) {
+            logger.info("Rated {} games", ratedCount);
+        }
+    }
+}
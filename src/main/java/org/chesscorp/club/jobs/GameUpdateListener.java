@@ -1,5 +1,6 @@
 package org.chesscorp.club.jobs;
 
+import org.alcibiade.chess.model.ChessGameStatus;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.model.game.ChessMove;
 import org.chesscorp.club.model.people.Player;
@@ -8,6 +9,7 @@ import org.chesscorp.club.monitoring.PerformanceMonitor;
 import org.chesscorp.club.service.ChessGameService;
 import org.chesscorp.club.service.ChessPositionService;
 import org.chesscorp.club.service.ChessRobotService;
+import org.chesscorp.club.service.GamePushService;
 import org.chesscorp.club.service.MessagingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,17 +34,20 @@ public class GameUpdateListener {
     private ChessRobotService chessRobotService;
     private ChessGameService chessGameService;
     private MessagingService messagingService;
+    private GamePushService gamePushService;
     private int halfMoves;
 
     @Autowired
     public GameUpdateListener(ChessPositionService chessPositionService, PerformanceMonitor performanceMonitor,
                               ChessRobotService chessRobotService, ChessGameService chessGameService,
-                              MessagingService messagingService, @Value("${ai.prepare.halfMoves:4}") int halfMoves) {
+                              MessagingService messagingService, GamePushService gamePushService,
+                              @Value("${ai.prepare.halfMoves:4}") int halfMoves) {
         this.chessPositionService = chessPositionService;
         this.performanceMonitor = performanceMonitor;
         this.chessRobotService = chessRobotService;
         this.chessGameService = chessGameService;
         this.messagingService = messagingService;
+        this.gamePushService = gamePushService;
         this.halfMoves = halfMoves;
     }
 
@@ -52,7 +57,12 @@ public class GameUpdateListener {
         logger.debug("Game {} updated", gameId);
 
         ChessGame game = chessGameService.getGame(gameId);
-        checkForRobotMove(game);
+        gamePushService.publish(game);
+
+        ChessGame updatedGame = checkForRobotMove(game);
+        if (updatedGame != game) {
+            gamePushService.publish(updatedGame);
+        }
 
         performanceMonitor.mark();
         long moves = chessPositionService.updateMovePositions();
@@ -66,6 +76,10 @@ public class GameUpdateListener {
      * @return the new value of the game object
      */
     private ChessGame checkForRobotMove(ChessGame game) {
+        if (game.getStatus() != ChessGameStatus.OPEN) {
+            return game;
+        }
+
         Player nextPlayer = game.getNextPlayer();
         logger.debug("Next player in game {} is {} ({} moves)", game.getId(), nextPlayer, game.getMoves().size());
 
@@ -1,46 +1,97 @@
 package org.chesscorp.club.jobs;
 
-import org.alcibiade.chess.persistence.PgnBookReader;
 import org.alcibiade.chess.persistence.PgnGameModel;
+import org.chesscorp.club.dto.ValidatedPgnGame;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.monitoring.PerformanceMonitor;
 import org.chesscorp.club.service.ChessGameService;
 import org.chesscorp.club.service.ChessPositionService;
+import org.chesscorp.club.utilities.pgn.CompressedPgnReader;
+import org.chesscorp.club.utilities.pgn.MappedPgnReader;
+import org.chesscorp.club.utilities.pgn.PgnGameReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Import a single PGN file in the database.
+ * Import a single PGN file in the database. Files compressed with gzip or bzip2, and zip archives of PGN files, are
+ * decompressed on the fly.
+ * <p>
+ * Games flow through a pipeline: a reader thread parses the file, itself spreading the parsing of file chunks on
+ * several threads for plain PGN files, worker threads check the moves and compute
+ * positions, and the calling thread persists games by batches. Stages are connected by bounded queues so that a slow
+ * stage holds back the previous ones.
+ * </p>
+ * <p>
+ * Games are numbered as they are read, and the writer puts them back in file order before persisting them. The number
+ * of games read but not written yet is bounded, which also bounds the reordering buffer.
+ * </p>
  */
 @Component
 @Scope(value = ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class PgnImportProcessor {
+    private static final String COMPONENT = "PgnImportProcessor";
+    private static final long POLL_MILLIS = 100;
 
     private Logger logger = LoggerFactory.getLogger(PgnImportProcessor.class);
 
     private ChessGameService chessGameService;
     private ChessPositionService chessPositionService;
     private PerformanceMonitor performanceMonitor;
+    private TransactionTemplate transactionTemplate;
+    private int workers;
+    private int queueSize;
+    private int batchSize;
+    private int parsers;
+    private int chunkSize;
 
     private boolean updatePositionRepository = true;
 
     @Autowired
     public PgnImportProcessor(ChessGameService chessGameService,
                               ChessPositionService chessPositionService,
-                              PerformanceMonitor performanceMonitor) {
+                              PerformanceMonitor performanceMonitor,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${chesscorp.import.workers:2}") int workers,
+                              @Value("${chesscorp.import.queueSize:256}") int queueSize,
+                              @Value("${chesscorp.import.batchSize:50}") int batchSize,
+                              @Value("${chesscorp.import.parsers:2}") int parsers,
+                              @Value("${chesscorp.import.chunkSize:4194304}") int chunkSize) {
         this.chessGameService = chessGameService;
         this.chessPositionService = chessPositionService;
         this.performanceMonitor = performanceMonitor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(1, workers);
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.parsers = Math.max(1, parsers);
+        this.chunkSize = chunkSize;
     }
 
 
@@ -52,31 +103,12 @@ public class PgnImportProcessor {
     public File process(File file) {
         logger.info("Importing games from " + file);
 
-        try (InputStream pgnStream = new FileInputStream(file)) {
+        try (PgnGameReader pgnReader = openReader(file)) {
             performanceMonitor.mark();
 
-            long importCount = 0;
-            PgnBookReader bookReader = new PgnBookReader(pgnStream);
-            PgnGameModel pgnGameModel;
-
-            while ((pgnGameModel = bookReader.readGame()) != null) {
-                ChessGame importedGame = chessGameService.batchImport(pgnGameModel);
-                if (importedGame != null) {
-                    importCount += 1;
-                    if (updatePositionRepository) {
-                        chessPositionService.updateGamePositions(importedGame.getId());
-                    }
-                }
-
-                logger.info("{} game {}: {} vs {}",
-                        file.getName(),
-                        importCount,
-                        pgnGameModel.getWhitePlayerName(),
-                        pgnGameModel.getBlackPlayerName());
-
-            }
+            long importCount = importGames(file.getName(), pgnReader);
 
-            performanceMonitor.register("PgnImportProcessor", "import", importCount, "game");
+            performanceMonitor.register(COMPONENT, "import", importCount, "game");
             logger.info("Imported {} game(s) from {}", importCount, file);
         } catch (IOException e) {
             throw new IllegalStateException("File processing failed on " + file, e);
@@ -84,4 +116,262 @@ public class PgnImportProcessor {
 
         return file;
     }
+
+    private PgnGameReader openReader(File file) throws IOException {
+        if (CompressedPgnReader.isCompressed(file.getName())) {
+            return new CompressedPgnReader(file.toPath());
+        }
+
+        return new MappedPgnReader(file.toPath(), parsers, chunkSize);
+    }
+
+    private long importGames(String name, PgnGameReader gameReader) {
+        BlockingQueue<SequencedGame<PgnGameModel>> readGames = new ArrayBlockingQueue<>(queueSize);
+        BlockingQueue<SequencedGame<ValidatedPgnGame>> validatedGames = new ArrayBlockingQueue<>(queueSize);
+        Semaphore pendingGames = new Semaphore(2 * queueSize + workers + batchSize);
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        long startTime = System.currentTimeMillis();
+
+        try {
+            Future<?> reader = executor.submit(() -> readGames(gameReader, readGames, pendingGames, startTime));
+
+            AtomicLong validatedCount = new AtomicLong();
+            List<Future<?>> validators = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                validators.add(executor.submit(() -> validateGames(reader, readGames, validatedGames,
+                        validatedCount)));
+            }
+
+            List<Future<?>> stages = new ArrayList<>(validators);
+            stages.add(reader);
+            long importCount = writeGames(name, stages, validators, readGames, validatedGames, pendingGames);
+
+            // Stages are all complete at this point, surface any failure left
+            stages.forEach(this::checkStage);
+
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitor.register(COMPONENT, "validate", validatedCount.get(), "game", duration);
+            performanceMonitor.register(COMPONENT, "write", importCount, "game", duration);
+            return importCount;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reader stage: parse the PGN stream and number games in file order. A game is only read once a pending game slot
+     * is available, slots being released by the writer.
+     */
+    private Void readGames(PgnGameReader gameReader, BlockingQueue<SequencedGame<PgnGameModel>> readGames,
+                           Semaphore pendingGames, long startTime) throws IOException, InterruptedException {
+        PgnGameModel pgnGameModel;
+        long readCount = 0;
+
+        while ((pgnGameModel = gameReader.readGame()) != null) {
+            pendingGames.acquire();
+            enqueue(readGames, new SequencedGame<>(readCount, pgnGameModel), "read-queue-full");
+            readCount += 1;
+        }
+
+        performanceMonitor.register(COMPONENT, "read", readCount, "game",
+                System.currentTimeMillis() - startTime);
+        return null;
+    }
+
+    /**
+     * Worker stage: check moves and compute positions, until the reader is done and its queue is drained.
+     */
+    private Void validateGames(Future<?> reader, BlockingQueue<SequencedGame<PgnGameModel>> readGames,
+                               BlockingQueue<SequencedGame<ValidatedPgnGame>> validatedGames,
+                               AtomicLong validatedCount) throws InterruptedException {
+        while (true) {
+            boolean readerDone = reader.isDone();
+            SequencedGame<PgnGameModel> readGame = readGames.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+            if (readGame == null) {
+                if (readerDone) {
+                    return null;
+                }
+                continue;
+            }
+
+            enqueue(validatedGames, new SequencedGame<>(readGame.sequence,
+                    chessGameService.validateImport(readGame.game)), "validated-queue-full");
+            validatedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writer stage: persist validated games by batches in file order, each batch in its own transaction. Games
+     * validated ahead of their turn wait in a reordering buffer. This runs on the calling thread so that an enclosing
+     * transaction is joined.
+     */
+    private long writeGames(String name, List<Future<?>> stages, List<Future<?>> validators,
+                            BlockingQueue<SequencedGame<PgnGameModel>> readGames,
+                            BlockingQueue<SequencedGame<ValidatedPgnGame>> validatedGames, Semaphore pendingGames) {
+        long importCount = 0;
+        long nextSequence = 0;
+        int maxReadDepth = 0;
+        int maxValidatedDepth = 0;
+        int maxReorderDepth = 0;
+        List<SequencedGame<ValidatedPgnGame>> received = new ArrayList<>(batchSize);
+        PriorityQueue<SequencedGame<ValidatedPgnGame>> reorderBuffer =
+                new PriorityQueue<>(Comparator.comparingLong(g -> g.sequence));
+        List<ValidatedPgnGame> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            // Stop at the first failed stage, as the serial import used to
+            stages.stream().filter(Future::isDone).forEach(this::checkStage);
+
+            boolean validatorsDone = validators.stream().allMatch(Future::isDone);
+            received.clear();
+            batch.clear();
+
+            try {
+                // Don't wait for new games while the buffer still holds games ready to be written
+                boolean ready = !reorderBuffer.isEmpty() && reorderBuffer.peek().sequence == nextSequence;
+                SequencedGame<ValidatedPgnGame> first = ready
+                        ? validatedGames.poll()
+                        : validatedGames.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    received.add(first);
+                    validatedGames.drainTo(received, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while importing " + name, e);
+            }
+
+            reorderBuffer.addAll(received);
+            maxReorderDepth = Math.max(maxReorderDepth, reorderBuffer.size());
+
+            while (batch.size() < batchSize && !reorderBuffer.isEmpty()
+                    && reorderBuffer.peek().sequence == nextSequence) {
+                batch.add(reorderBuffer.poll().game);
+                nextSequence += 1;
+            }
+
+            if (batch.isEmpty()) {
+                if (validatorsDone && received.isEmpty() && validatedGames.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+
+            maxReadDepth = Math.max(maxReadDepth, readGames.size());
+            maxValidatedDepth = Math.max(maxValidatedDepth, validatedGames.size() + batch.size());
+            logger.debug("{}: writing {} games, queue depths {} read / {} validated / {} reordered",
+                    name, batch.size(), readGames.size(), validatedGames.size(), reorderBuffer.size());
+
+            importCount += writeBatchOrGames(name, batch, importCount);
+            pendingGames.release(batch.size());
+        }
+
+        if (!reorderBuffer.isEmpty()) {
+            throw new IllegalStateException(name + ": game " + nextSequence + " was never validated");
+        }
+
+        logger.info("{}: maximum queue depths {} read / {} validated / {} reordered, capacity {}",
+                name, maxReadDepth, maxValidatedDepth, maxReorderDepth, queueSize);
+        return importCount;
+    }
+
+    /**
+     * Write a batch in its own transaction. If a concurrent import stored one of its games meanwhile, the unique
+     * fingerprint rolls the whole batch back, its games are then written one by one so that the others still make it.
+     */
+    private long writeBatchOrGames(String name, List<ValidatedPgnGame> batch, long importedBefore) {
+        try {
+            return transactionTemplate.execute(status -> writeBatch(name, batch, importedBefore));
+        } catch (DataIntegrityViolationException e) {
+            // Within an enclosing transaction, the batch can't be written again
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+
+            performanceMonitor.increment(COMPONENT, "batch-conflict");
+            logger.warn("{}: batch conflicts with a concurrent import, writing its games one by one", name);
+        }
+
+        long importCount = 0;
+
+        for (ValidatedPgnGame validatedGame : batch) {
+            importCount += writeGame(name, validatedGame, importedBefore + importCount);
+        }
+
+        return importCount;
+    }
+
+    /**
+     * Write a single game, retrying once on conflict: the conflicting game has been committed by then, and the
+     * duplicate check reports the game as already present.
+     */
+    private long writeGame(String name, ValidatedPgnGame validatedGame, long importedBefore) {
+        List<ValidatedPgnGame> batch = Collections.singletonList(validatedGame);
+
+        try {
+            return transactionTemplate.execute(status -> writeBatch(name, batch, importedBefore));
+        } catch (DataIntegrityViolationException e) {
+            performanceMonitor.increment(COMPONENT, "game-conflict");
+            return transactionTemplate.execute(status -> writeBatch(name, batch, importedBefore));
+        }
+    }
+
+    private long writeBatch(String name, List<ValidatedPgnGame> batch, long importedBefore) {
+        long importCount = 0;
+
+        for (ValidatedPgnGame validatedGame : batch) {
+            ChessGame importedGame = chessGameService.batchImport(validatedGame);
+            if (importedGame != null) {
+                importCount += 1;
+                if (updatePositionRepository) {
+                    chessPositionService.indexImportedGame(importedGame, validatedGame.getPositions());
+                }
+            }
+
+            logger.info("{} game {}: {} vs {}{}",
+                    name,
+                    importedBefore + importCount,
+                    validatedGame.getPgnGameModel().getWhitePlayerName(),
+                    validatedGame.getPgnGameModel().getBlackPlayerName(),
+                    importedGame == null ? " (already present)" : "");
+        }
+
+        return importCount;
+    }
+
+    private <T> void enqueue(BlockingQueue<T> queue, T item, String fullCounter) throws InterruptedException {
+        if (!queue.offer(item)) {
+            performanceMonitor.increment(COMPONENT, fullCounter);
+            queue.put(item);
+        }
+    }
+
+    private void checkStage(Future<?> stage) {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing games", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException("Import stage failed", e.getCause());
+        }
+    }
+
+    /**
+     * Game numbered by its position in the file.
+     */
+    private static class SequencedGame<T> {
+        private final long sequence;
+        private final T game;
+
+        SequencedGame(long sequence, T game) {
+            this.sequence = sequence;
+            this.game = game;
+        }
+    }
 }
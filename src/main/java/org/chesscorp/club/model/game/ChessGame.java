@@ -1,5 +1,6 @@
 package org.chesscorp.club.model.game;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.alcibiade.chess.model.ChessGameStatus;
 import org.chesscorp.club.model.people.Player;
 import org.hibernate.annotations.Proxy;
@@ -20,7 +21,11 @@ import java.util.Objects;
 @Proxy(lazy = false)
 @Table(
         indexes = {
-                @Index(columnList = "whiteplayer_id,blackplayer_id", unique = false)
+                @Index(columnList = "whiteplayer_id,blackplayer_id", unique = false),
+                @Index(columnList = "whiteplayer_id,status,id", unique = false),
+                @Index(columnList = "blackplayer_id,status,id", unique = false),
+                @Index(columnList = "fingerprint", unique = true),
+                @Index(columnList = "startDate,id", unique = false)
         }
 )
 @SequenceGenerator(name = "chessgame_seq", initialValue = 1, allocationSize = 1, sequenceName = "chessgame_seq")
@@ -29,6 +34,8 @@ public class ChessGame {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chessgame_seq")
     private Long id;
+    @Version
+    private Long version;
     @ManyToOne(optional = false)
     private Player whitePlayer;
     @ManyToOne(optional = false)
@@ -49,6 +56,21 @@ public class ChessGame {
     @Column(nullable = true, length = 12)
     private String round;
 
+    // Snapshot of the position reached after the last move, null if it has to be rebuilt from the moves
+    @Column(nullable = true, length = 70)
+    @JsonIgnore
+    private String position;
+
+    // Number of moves, kept along the moves list so that game lists do not have to load moves
+    @Column(nullable = true)
+    @JsonIgnore
+    private Integer moveCount;
+
+    // Content hash of imported games, used to detect duplicates, null for games played in the club
+    @Column(nullable = true, length = 64)
+    @JsonIgnore
+    private String fingerprint;
+
     public ChessGame() {
     }
 
@@ -61,6 +83,7 @@ public class ChessGame {
         this.whitePlayer = whitePlayer;
         this.blackPlayer = blackPlayer;
         this.moves = moves;
+        this.moveCount = moves.size();
         this.startDate = startDate;
         this.status = status;
         this.site = site;
@@ -72,12 +95,14 @@ public class ChessGame {
         this.whitePlayer = whitePlayer;
         this.blackPlayer = blackPlayer;
         this.moves = moves;
+        this.moveCount = moves.size();
         this.status = status;
         this.startDate = startDate;
     }
 
-    public ChessGame(ChessGame game, ChessMove move, ChessGameStatus status) {
+    public ChessGame(ChessGame game, ChessMove move, ChessGameStatus status, String position) {
         this.id = game.id;
+        this.version = game.version;
         this.whitePlayer = game.whitePlayer;
         this.blackPlayer = game.blackPlayer;
         this.startDate = game.getStartDate();
@@ -85,14 +110,21 @@ public class ChessGame {
         // Moves is a clone of the original list that is updated
         this.moves = new ArrayList<>(game.moves);
         this.moves.add(move);
+        this.moveCount = this.moves.size();
 
         this.status = status;
+        this.position = position;
+        this.fingerprint = game.fingerprint;
     }
 
     public Long getId() {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Player getWhitePlayer() {
         return whitePlayer;
     }
@@ -129,6 +161,30 @@ public class ChessGame {
         return round;
     }
 
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    public Integer getMoveCount() {
+        return moveCount;
+    }
+
+    public void setMoveCount(Integer moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     public Player getNextPlayer() {
         boolean whiteIsNext = moves.size() % 2 == 0;
         return whiteIsNext ? whitePlayer : blackPlayer;
@@ -137,6 +193,9 @@ public class ChessGame {
     public ChessMove addMove(OffsetDateTime moveDate, String movePgn) {
         ChessMove move = new ChessMove(this, moveDate, movePgn);
         this.moves.add(move);
+        this.moveCount = this.moves.size();
+        // The position snapshot no longer matches the moves list
+        this.position = null;
         return move;
     }
 
@@ -163,6 +222,7 @@ public class ChessGame {
     public String toString() {
         return "ChessGame{" +
                 "id='" + id + '\'' +
+                ", version=" + version +
                 ", whitePlayer=" + whitePlayer +
                 ", blackPlayer=" + blackPlayer +
                 ", movesCount=" + moves.size() +
@@ -0,0 +1,76 @@
+package org.chesscorp.club.model.game;
+
+import org.alcibiade.chess.model.ChessMovePath;
+import org.alcibiade.chess.model.ChessPosition;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Materialized state of an open game, as kept in the live games cache.
+ */
+public class ChessGameState {
+
+    private Long gameId;
+
+    private int moveCount;
+
+    private ChessPosition position;
+
+    /**
+     * Legal moves indexed by their canonical PGN notation.
+     */
+    private Map<String, ChessMovePath> legalMoves;
+
+    private Long nextPlayerId;
+
+    public ChessGameState(Long gameId, int moveCount, ChessPosition position, Map<String, ChessMovePath> legalMoves,
+                          Long nextPlayerId) {
+        this.gameId = gameId;
+        this.moveCount = moveCount;
+        this.position = position;
+        this.legalMoves = legalMoves;
+        this.nextPlayerId = nextPlayerId;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public ChessPosition getPosition() {
+        return position;
+    }
+
+    public Set<String> getLegalMoves() {
+        return Collections.unmodifiableSet(legalMoves.keySet());
+    }
+
+    /**
+     * Look up a legal move.
+     *
+     * @param pgnMove the move in canonical PGN notation
+     * @return the move path, or null if the notation does not match a legal move
+     */
+    public ChessMovePath getLegalMove(String pgnMove) {
+        return legalMoves.get(pgnMove);
+    }
+
+    public Long getNextPlayerId() {
+        return nextPlayerId;
+    }
+
+    @Override
+    public String toString() {
+        return "ChessGameState{" +
+                "gameId=" + gameId +
+                ", moveCount=" + moveCount +
+                ", legalMoves=" + legalMoves.size() +
+                ", nextPlayerId=" + nextPlayerId +
+                '}';
+    }
+}
@@ -11,6 +11,11 @@ import java.time.OffsetDateTime;
  * @author Yannick Kirschhoffer <alcibiade@alcibiade.org>
  */
 @Entity
+@Table(
+        indexes = {
+                @Index(columnList = "chessGame_id", unique = false)
+        }
+)
 @SequenceGenerator(name = "elorating_seq", initialValue = 1, allocationSize = 1, sequenceName = "elorating_seq")
 public class EloRating implements Comparable<EloRating> {
 
@@ -27,6 +27,13 @@ public abstract class Player implements Comparable<Player> {
     @Column(nullable = false, length = 32)
     private String displayName;
 
+    // Current rating and number of rated games, kept along the rating history. Rating is null if never rated,
+    // games played is null for players stored by previous releases.
+    @Column(nullable = true)
+    private Integer eloRating;
+    @Column(nullable = true)
+    private Integer gamesPlayed = 0;
+
     public Player() {
     }
 
@@ -42,6 +49,19 @@ public abstract class Player implements Comparable<Player> {
         return displayName;
     }
 
+    public Integer getEloRating() {
+        return eloRating;
+    }
+
+    public Integer getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public void setRating(Integer eloRating, Integer gamesPlayed) {
+        this.eloRating = eloRating;
+        this.gamesPlayed = gamesPlayed;
+    }
+
     @Override
     public int hashCode() {
         int hash = 5;
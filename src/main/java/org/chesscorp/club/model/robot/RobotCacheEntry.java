@@ -1,5 +1,8 @@
 package org.chesscorp.club.model.robot;
 
+import org.chesscorp.club.utilities.position.PositionCodec;
+import org.chesscorp.club.utilities.position.ZobristHash;
+
 import javax.persistence.*;
 
 /**
@@ -7,7 +10,9 @@ import javax.persistence.*;
  */
 @Entity
 @Table(name = "robotcache", indexes = {
-        @Index(columnList = "engine,parameters,position", unique = true)
+        @Index(columnList = "positionHash"),
+        @Index(columnList = "engine,parameters,positionHash,packedPosition", unique = true),
+        @Index(columnList = "engine,parameters,positionHash,position", unique = true)
 })
 @SequenceGenerator(name = "robotcache_seq", initialValue = 1, allocationSize = 1, sequenceName = "robotcache_seq")
 public class RobotCacheEntry {
@@ -21,9 +26,21 @@ public class RobotCacheEntry {
     @Column(length = 64, nullable = false)
     private String parameters;
 
-    @Column(length = 70, nullable = false)
+    /**
+     * Position text, only kept for rows not packed yet and for texts that cannot be packed.
+     */
+    @Column(length = 70, nullable = true)
     private String position;
 
+    @Column(length = PositionCodec.MAX_LENGTH, nullable = true)
+    private byte[] packedPosition;
+
+    /**
+     * Zobrist hash of the position, used as lookup key. Null on rows created before the hash was introduced.
+     */
+    @Column(nullable = true)
+    private Long positionHash;
+
     @Column(length = 12, nullable = true)
     private String pgnMoveText;
 
@@ -34,7 +51,9 @@ public class RobotCacheEntry {
         this.engine = engine;
         this.parameters = parameters;
         this.position = position;
+        this.positionHash = ZobristHash.hash(position);
         this.pgnMoveText = pgnMoveText;
+        pack();
     }
 
     public Long getId() {
@@ -50,7 +69,30 @@ public class RobotCacheEntry {
     }
 
     public String getPosition() {
-        return position;
+        return packedPosition == null ? position : PositionCodec.decode(packedPosition);
+    }
+
+    /**
+     * Replace the position column by its packed form when possible.
+     *
+     * @return true if the position was packed
+     */
+    public boolean pack() {
+        if (packedPosition != null || !PositionCodec.canEncode(position)) {
+            return false;
+        }
+
+        packedPosition = PositionCodec.encode(position);
+        position = null;
+        return true;
+    }
+
+    public Long getPositionHash() {
+        return positionHash;
+    }
+
+    public void updatePositionHash() {
+        this.positionHash = ZobristHash.hash(getPosition());
     }
 
     public String getPgnMoveText() {
@@ -63,7 +105,7 @@ public class RobotCacheEntry {
                 "id=" + id +
                 ", engine='" + engine + '\'' +
                 ", parameters='" + parameters + '\'' +
-                ", position='" + position + '\'' +
+                ", position='" + getPosition() + '\'' +
                 ", pgnMoveText='" + pgnMoveText + '\'' +
                 '}';
     }
@@ -1,21 +1,39 @@
 package org.chesscorp.club.model.stats;
 
+import org.chesscorp.club.utilities.position.PositionCodec;
+import org.chesscorp.club.utilities.position.ZobristHash;
+
 import javax.persistence.*;
 
 /**
  * Chess position reference.
  */
 @Entity
-@Table(name = "chessposition")
+@Table(name = "chessposition", indexes = {
+        @Index(columnList = "positionHash,packedText", unique = true),
+        @Index(columnList = "positionHash,text", unique = true)
+})
 @SequenceGenerator(name = "chessposition_seq", initialValue = 1, allocationSize = 1, sequenceName = "chessposition_seq")
 public class ChessClubPosition {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chessposition_seq")
     private Long id;
 
-    @Column(length = 70, unique = true, nullable = false)
+    /**
+     * Position text, only kept for rows not packed yet and for texts that cannot be packed.
+     */
+    @Column(length = 70, nullable = true)
     private String text;
 
+    @Column(length = PositionCodec.MAX_LENGTH, nullable = true)
+    private byte[] packedText;
+
+    /**
+     * Zobrist hash of the text, used as lookup key. Null on rows created before the hash was introduced.
+     */
+    @Column(nullable = true)
+    private Long positionHash;
+
     @Column(nullable = true)
     private Integer score;
 
@@ -27,6 +45,8 @@ public class ChessClubPosition {
 
     public ChessClubPosition(String text) {
         this.text = text;
+        this.positionHash = ZobristHash.hash(text);
+        pack();
     }
 
     public Long getId() {
@@ -34,7 +54,30 @@ public class ChessClubPosition {
     }
 
     public String getText() {
-        return text;
+        return packedText == null ? text : PositionCodec.decode(packedText);
+    }
+
+    /**
+     * Replace the text column by its packed form when possible.
+     *
+     * @return true if the position was packed
+     */
+    public boolean pack() {
+        if (packedText != null || !PositionCodec.canEncode(text)) {
+            return false;
+        }
+
+        packedText = PositionCodec.encode(text);
+        text = null;
+        return true;
+    }
+
+    public Long getPositionHash() {
+        return positionHash;
+    }
+
+    public void updatePositionHash() {
+        this.positionHash = ZobristHash.hash(getText());
     }
 
     public Integer getScore() {
@@ -57,7 +100,7 @@ public class ChessClubPosition {
     public String toString() {
         return "ChessClubPosition{" +
                 "id=" + id +
-                ", text='" + text + '\'' +
+                ", text='" + getText() + '\'' +
                 ", score=" + score +
                 ", expected='" + expected + '\'' +
                 '}';
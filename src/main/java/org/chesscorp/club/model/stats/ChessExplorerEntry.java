@@ -0,0 +1,80 @@
+package org.chesscorp.club.model.stats;
+
+import javax.persistence.*;
+
+/**
+ * Opening explorer aggregate: results of the finished games in which a move was played from a position.
+ * Positions are identified by their Zobrist hash, collisions are negligible for statistics.
+ */
+@Entity
+@Table(name = "chessexplorer", indexes = {
+        @Index(columnList = "positionHash,pgnMove", unique = true)
+})
+@SequenceGenerator(name = "chessexplorer_seq", initialValue = 1, allocationSize = 1, sequenceName = "chessexplorer_seq")
+public class ChessExplorerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chessexplorer_seq")
+    private Long id;
+
+    @Column(nullable = false)
+    private Long positionHash;
+
+    @Column(length = 12, nullable = false)
+    private String pgnMove;
+
+    @Column(nullable = false)
+    private long whiteWins;
+
+    @Column(nullable = false)
+    private long draws;
+
+    @Column(nullable = false)
+    private long blackWins;
+
+    public ChessExplorerEntry() {
+    }
+
+    public ChessExplorerEntry(Long positionHash, String pgnMove, long whiteWins, long draws, long blackWins) {
+        this.positionHash = positionHash;
+        this.pgnMove = pgnMove;
+        this.whiteWins = whiteWins;
+        this.draws = draws;
+        this.blackWins = blackWins;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPositionHash() {
+        return positionHash;
+    }
+
+    public String getPgnMove() {
+        return pgnMove;
+    }
+
+    public long getWhiteWins() {
+        return whiteWins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getBlackWins() {
+        return blackWins;
+    }
+
+    @Override
+    public String toString() {
+        return "ChessExplorerEntry{" +
+                "id=" + id +
+                ", positionHash=" + positionHash +
+                ", pgnMove='" + pgnMove + '\'' +
+                ", whiteWins=" + whiteWins +
+                ", draws=" + draws +
+                ", blackWins=" + blackWins +
+                '}';
+    }
+}
@@ -31,4 +31,21 @@ public interface PerformanceMonitor {
      * @param duration  duration of the operation in milliseconds
      */
     void register(String component, String operation, long items, String itemType, long duration);
+
+    /**
+     * Increment an event counter, such as cache hits or misses.
+     *
+     * @param component name of the activity component
+     * @param counter   name of the counter
+     */
+    void increment(String component, String counter);
+
+    /**
+     * Get the current value of an event counter.
+     *
+     * @param component name of the activity component
+     * @param counter   name of the counter
+     * @return the number of events counted so far
+     */
+    long getCounter(String component, String counter);
 }
@@ -4,6 +4,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Logging implementation of performance monitoring.
  */
@@ -11,6 +15,7 @@ import org.springframework.stereotype.Component;
 public class PerformanceMonitorImpl implements PerformanceMonitor {
     private Logger logger = LoggerFactory.getLogger(PerformanceMonitorImpl.class);
     private ThreadLocal<Long> startTime = new ThreadLocal<>();
+    private Map<String, LongAdder> counters = new ConcurrentHashMap<>();
 
     @Override
     public void mark() {
@@ -31,4 +36,15 @@ public class PerformanceMonitorImpl implements PerformanceMonitor {
 
         logger.debug(message);
     }
+
+    @Override
+    public void increment(String component, String counter) {
+        counters.computeIfAbsent(component + "/" + counter, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public long getCounter(String component, String counter) {
+        LongAdder adder = counters.get(component + "/" + counter);
+        return adder == null ? 0 : adder.sum();
+    }
 }
@@ -0,0 +1,39 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.model.stats.ChessExplorerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * Persistence of opening explorer aggregates.
+ */
+public interface ChessExplorerRepository extends JpaRepository<ChessExplorerEntry, Long> {
+
+    /**
+     * Find the moves played from a position, most frequent first.
+     *
+     * @param positionHash a position Zobrist hash
+     * @return the aggregates of each move played from this position
+     */
+    @Query("SELECT e FROM ChessExplorerEntry e WHERE e.positionHash = ?1 "
+            + "ORDER BY e.whiteWins + e.draws + e.blackWins DESC, e.pgnMove")
+    List<ChessExplorerEntry> findByPositionHash(Long positionHash);
+
+    /**
+     * Add results to an existing aggregate.
+     *
+     * @param positionHash the position Zobrist hash
+     * @param pgnMove    the move played from the position
+     * @param whiteWins  white wins to add
+     * @param draws      draws to add
+     * @param blackWins  black wins to add
+     * @return the number of aggregates updated, 0 if none exists yet
+     */
+    @Modifying
+    @Query("UPDATE ChessExplorerEntry e SET e.whiteWins = e.whiteWins + ?3, e.draws = e.draws + ?4, "
+            + "e.blackWins = e.blackWins + ?5 WHERE e.positionHash = ?1 AND e.pgnMove = ?2")
+    int addResults(Long positionHash, String pgnMove, long whiteWins, long draws, long blackWins);
+}
@@ -1,9 +1,16 @@
 package org.chesscorp.club.persistence;
 
 import org.alcibiade.chess.model.ChessGameStatus;
+import org.chesscorp.club.dto.ChessGameResult;
+import org.chesscorp.club.dto.ChessGameSummary;
 import org.chesscorp.club.model.game.ChessGame;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.stream.Stream;
@@ -13,7 +20,144 @@ public interface ChessGameRepository extends JpaRepository<ChessGame, Number> {
     Stream<ChessGame> findByWhitePlayerIdAndStatusInOrBlackPlayerIdAndStatusIn(
             Number whitePlayerId, List<ChessGameStatus> whiteStatus, Number blackPlayerId, List<ChessGameStatus> status);
 
-    Stream<ChessGame> findByWhitePlayerIdAndBlackPlayerIdAndStartDate(Number whitePlayerId, Number blackPlayerId, OffsetDateTime startDate);
+    /**
+     * Stream summaries of the games of a player, without loading moves.
+     *
+     * @param playerId identifier of the player, either as white or black
+     * @param status   accepted game status
+     * @return the matching game summaries, by creation order
+     */
+    @Query("SELECT new org.chesscorp.club.dto.ChessGameSummary("
+            + "g.id, w.id, w.displayName, b.id, b.displayName, g.status, g.startDate, g.moveCount) "
+            + "FROM ChessGame g JOIN g.whitePlayer w JOIN g.blackPlayer b "
+            + "WHERE (w.id = ?1 OR b.id = ?1) AND g.status IN ?2 ORDER BY g.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<ChessGameSummary> streamSummariesByPlayerIdAndStatusIn(Long playerId, List<ChessGameStatus> status);
+
+    /**
+     * Find a page of summaries of the games played as white, following a game identifier.
+     *
+     * @param playerId identifier of the white player
+     * @param status   accepted game status
+     * @param afterId  identifier of the last game of the previous page
+     * @param pageable page size
+     * @return the matching game summaries, by creation order
+     */
+    @Query("SELECT new org.chesscorp.club.dto.ChessGameSummary("
+            + "g.id, w.id, w.displayName, b.id, b.displayName, g.status, g.startDate, g.moveCount) "
+            + "FROM ChessGame g JOIN g.whitePlayer w JOIN g.blackPlayer b "
+            + "WHERE w.id = ?1 AND g.status IN ?2 AND g.id > ?3 ORDER BY g.id")
+    List<ChessGameSummary> findWhiteSummaries(Long playerId, List<ChessGameStatus> status, Long afterId,
+                                              Pageable pageable);
+
+    /**
+     * Find a page of summaries of the games played as black, following a game identifier.
+     *
+     * @param playerId identifier of the black player
+     * @param status   accepted game status
+     * @param afterId  identifier of the last game of the previous page
+     * @param pageable page size
+     * @return the matching game summaries, by creation order
+     */
+    @Query("SELECT new org.chesscorp.club.dto.ChessGameSummary("
+            + "g.id, w.id, w.displayName, b.id, b.displayName, g.status, g.startDate, g.moveCount) "
+            + "FROM ChessGame g JOIN g.whitePlayer w JOIN g.blackPlayer b "
+            + "WHERE b.id = ?1 AND g.status IN ?2 AND g.id > ?3 ORDER BY g.id")
+    List<ChessGameSummary> findBlackSummaries(Long playerId, List<ChessGameStatus> status, Long afterId,
+                                              Pageable pageable);
 
     Stream<ChessGame> findAllByStatus(ChessGameStatus status);
+
+    /**
+     * Count the ended games of a player, rated or not.
+     *
+     * @param playerId the player identifier
+     * @return the number of games the player played as white or black that are no longer open
+     */
+    @Query("SELECT COUNT(g) FROM ChessGame g WHERE (g.whitePlayer.id = ?1 OR g.blackPlayer.id = ?1) "
+            + "AND g.status <> org.alcibiade.chess.model.ChessGameStatus.OPEN")
+    long countEndedGamesByPlayerId(Long playerId);
+
+    /**
+     * Count the games with a given content fingerprint.
+     *
+     * @param fingerprint a game fingerprint
+     * @return 1 if the game was already imported, 0 otherwise
+     */
+    long countByFingerprint(String fingerprint);
+
+    /**
+     * Find games between external players without fingerprint, typically games imported before fingerprints were
+     * introduced.
+     *
+     * @return all the matching games
+     */
+    @Query("SELECT g FROM ChessGame g WHERE g.fingerprint IS NULL "
+            + "AND TYPE(g.whitePlayer) = ExternalPlayer AND TYPE(g.blackPlayer) = ExternalPlayer")
+    Stream<ChessGame> findImportedGamesWithoutFingerprint();
+
+    /**
+     * Find games whose position snapshot is missing, typically games created before snapshots were introduced.
+     *
+     * @return all the matching games
+     */
+    Stream<ChessGame> findAllByPositionIsNull();
+
+    /**
+     * Find games whose move count is missing, typically games created before move counts were introduced.
+     *
+     * @return all the matching games
+     */
+    Stream<ChessGame> findAllByMoveCountIsNull();
+
+    /**
+     * Set an initial version on games created before optimistic locking was introduced.
+     *
+     * @return number of games updated
+     */
+    @Modifying
+    @Query("UPDATE ChessGame g SET g.version = 0 WHERE g.version IS NULL")
+    int initializeMissingVersions();
+
+    /**
+     * Find finished games that have not been rated yet, such as imported games. Games ended before the second move
+     * are not rated.
+     *
+     * @param pageable chunk size
+     * @return the results of unrated games, in chronological order
+     */
+    @Query("SELECT new org.chesscorp.club.dto.ChessGameResult("
+            + "g.id, g.whitePlayer.id, g.blackPlayer.id, g.status, g.startDate) "
+            + "FROM ChessGame g WHERE g.status <> org.alcibiade.chess.model.ChessGameStatus.OPEN "
+            + "AND g.moveCount >= 2 "
+            + "AND NOT EXISTS (SELECT r.id FROM EloRating r WHERE r.chessGame = g) "
+            + "ORDER BY g.startDate, g.id")
+    List<ChessGameResult> findUnratedResults(Pageable pageable);
+
+    /**
+     * Find finished games that have not been rated yet, following a given game in chronological order. Chunks are
+     * read with the last game of the previous chunk as cursor, so that each one only scans forward.
+     *
+     * @param startDate start date of the cursor game
+     * @param id        identifier of the cursor game
+     * @param pageable  chunk size
+     * @return the results of unrated games after the cursor, in chronological order
+     */
+    @Query("SELECT new org.chesscorp.club.dto.ChessGameResult("
+            + "g.id, g.whitePlayer.id, g.blackPlayer.id, g.status, g.startDate) "
+            + "FROM ChessGame g WHERE g.status <> org.alcibiade.chess.model.ChessGameStatus.OPEN "
+            + "AND g.moveCount >= 2 "
+            + "AND (g.startDate > ?1 OR (g.startDate = ?1 AND g.id > ?2)) "
+            + "AND NOT EXISTS (SELECT r.id FROM EloRating r WHERE r.chessGame = g) "
+            + "ORDER BY g.startDate, g.id")
+    List<ChessGameResult> findUnratedResultsAfter(OffsetDateTime startDate, Long id, Pageable pageable);
+
+    /**
+     * Get the status of a game without loading the game itself.
+     *
+     * @param id the game identifier
+     * @return the game status or null if the game does not exist
+     */
+    @Query("SELECT g.status FROM ChessGame g WHERE g.id = ?1")
+    ChessGameStatus findStatusById(Long id);
 }
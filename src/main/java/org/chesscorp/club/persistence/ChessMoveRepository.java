@@ -1,6 +1,7 @@
 package org.chesscorp.club.persistence;
 
 import org.chesscorp.club.model.game.ChessMove;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -10,6 +11,8 @@ public interface ChessMoveRepository extends JpaRepository<ChessMove, Number> {
 
     List<ChessMove> findByGameId(Long gameId);
 
+    long countByGameId(Long gameId);
+
     /**
      * Find all moves over a certain ID. Mostly used for batch iteration.
      *
@@ -21,10 +24,11 @@ public interface ChessMoveRepository extends JpaRepository<ChessMove, Number> {
     void deleteByIdGreaterThan(Long moveId);
 
     /**
-     * Find moves over a certain ID. Mostly used for batch iteration.
+     * Find the next moves over a certain ID, in identifier order. Used for chunked batch iteration.
      *
-     * @param moveId a move ID identifier
-     * @return all the matching moves
+     * @param moveId   a move ID identifier
+     * @param pageable the chunk size
+     * @return the matching moves
      */
-    Stream<ChessMove> findFirst1000ByIdGreaterThan(Long moveId);
+    List<ChessMove> findByIdGreaterThanOrderByIdAsc(Long moveId, Pageable pageable);
 }
@@ -1,11 +1,15 @@
 package org.chesscorp.club.persistence;
 
+import org.chesscorp.club.dto.ChessGameSummary;
 import org.chesscorp.club.model.stats.ChessMoveToPosition;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
-public interface ChessMoveToPositionRepository extends JpaRepository<ChessMoveToPosition, Number> {
+public interface ChessMoveToPositionRepository extends JpaRepository<ChessMoveToPosition, Number>,
+        ChessMoveToPositionRepositoryCustom {
 
     /**
      * Find the most recent indexed move.
@@ -21,4 +25,43 @@ public interface ChessMoveToPositionRepository extends JpaRepository<ChessMoveTo
      * @return a collection of distinct moves
      */
     List<ChessMoveToPosition> findFirst10ByChessClubPositionId(Long positionId);
+
+    /**
+     * Find the indexed moves of a game whose position has been scored, along with their positions.
+     *
+     * @param gameId an existing game ID
+     * @return the scored moves, by move order
+     */
+    @Query("SELECT mtp FROM ChessMoveToPosition mtp JOIN FETCH mtp.chessClubPosition p, ChessMove m "
+            + "WHERE m.id = mtp.chessMoveId AND m.game.id = ?1 AND p.score IS NOT NULL "
+            + "ORDER BY mtp.chessMoveId")
+    List<ChessMoveToPosition> findScoredByGameId(Long gameId);
+
+    /**
+     * Find summaries of the other games which reached the position following the last move of a game.
+     *
+     * @param gameId   an existing game ID
+     * @param pageable the maximum number of games
+     * @return the related game summaries, by creation order
+     */
+    @Query("SELECT DISTINCT new org.chesscorp.club.dto.ChessGameSummary("
+            + "g.id, w.id, w.displayName, b.id, b.displayName, g.status, g.startDate, g.moveCount) "
+            + "FROM ChessMoveToPosition mtp, ChessMove m JOIN m.game g JOIN g.whitePlayer w JOIN g.blackPlayer b "
+            + "WHERE m.id = mtp.chessMoveId AND g.id <> ?1 AND mtp.chessClubPosition.id = ("
+            + "SELECT lmtp.chessClubPosition.id FROM ChessMoveToPosition lmtp WHERE lmtp.chessMoveId = ("
+            + "SELECT MAX(lm.id) FROM ChessMove lm WHERE lm.game.id = ?1)) "
+            + "ORDER BY g.id")
+    List<ChessGameSummary> findRelatedSummaries(Long gameId, Pageable pageable);
+
+    /**
+     * Count the games which reached the position following the last move of a game, the game itself included.
+     *
+     * @param gameId an existing game ID
+     * @return the number of games
+     */
+    @Query("SELECT COUNT(DISTINCT m.game.id) FROM ChessMoveToPosition mtp, ChessMove m "
+            + "WHERE m.id = mtp.chessMoveId AND mtp.chessClubPosition.id = ("
+            + "SELECT lmtp.chessClubPosition.id FROM ChessMoveToPosition lmtp WHERE lmtp.chessMoveId = ("
+            + "SELECT MAX(lm.id) FROM ChessMove lm WHERE lm.game.id = ?1))")
+    long countRelatedGames(Long gameId);
 }
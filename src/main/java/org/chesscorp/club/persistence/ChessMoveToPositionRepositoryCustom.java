@@ -0,0 +1,18 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.model.stats.ChessMoveToPosition;
+
+import java.util.Collection;
+
+/**
+ * Bulk move indexing operations, bypassing the persistence context.
+ */
+public interface ChessMoveToPositionRepositoryCustom {
+
+    /**
+     * Insert move to position links in JDBC batches. Referenced positions must already be flushed.
+     *
+     * @param links the links to insert
+     */
+    void insertLinks(Collection<ChessMoveToPosition> links);
+}
@@ -0,0 +1,32 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.model.stats.ChessMoveToPosition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC implementation of bulk move indexing operations.
+ */
+public class ChessMoveToPositionRepositoryImpl implements ChessMoveToPositionRepositoryCustom {
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ChessMoveToPositionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertLinks(Collection<ChessMoveToPosition> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO ChessMoveToPosition (chessMoveId, chessClubPosition_id) VALUES (?, ?)",
+                links.stream()
+                        .map(l -> new Object[]{l.getChessMoveId(), l.getChessPosition().getId()})
+                        .collect(Collectors.toList()));
+    }
+}
@@ -3,11 +3,30 @@ package org.chesscorp.club.persistence;
 import org.chesscorp.club.model.stats.ChessClubPosition;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.stream.Stream;
 
-public interface ChessPositionRepository extends JpaRepository<ChessClubPosition, Number> {
+public interface ChessPositionRepository extends JpaRepository<ChessClubPosition, Number>,
+        ChessPositionRepositoryCustom {
 
-    ChessClubPosition findOneByText(String position);
+    /**
+     * Find positions by hash. Callers compare the position text to rule out collisions.
+     *
+     * @param positionHash Zobrist hash of the position
+     * @return the positions sharing this hash, usually one at most
+     */
+    List<ChessClubPosition> findByPositionHash(Long positionHash);
+
+    /**
+     * Find the most recently created position.
+     *
+     * @return the position with the highest ID, or null if there is no position yet.
+     */
+    ChessClubPosition findFirstByOrderByIdDesc();
+
+    List<ChessClubPosition> findFirst1000ByPositionHashIsNull();
+
+    List<ChessClubPosition> findFirst1000ByIdGreaterThanAndTextIsNotNullOrderByIdAsc(Long positionId);
 
     Stream<ChessClubPosition> findAllByScore(Integer score);
 }
@@ -0,0 +1,16 @@
+package org.chesscorp.club.persistence;
+
+/**
+ * Position inserts that are safe against concurrent indexers.
+ */
+public interface ChessPositionRepositoryCustom {
+
+    /**
+     * Insert a position unless another transaction already stored the same one. A conflicting insert waits for the
+     * other transaction, callers then read the committed position back.
+     *
+     * @param positionText the position text
+     * @return the identifier of the new position, or null if the position already exists
+     */
+    Long insertIfAbsent(String positionText);
+}
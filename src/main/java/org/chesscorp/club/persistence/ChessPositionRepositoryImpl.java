@@ -0,0 +1,65 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.model.stats.ChessClubPosition;
+import org.chesscorp.club.utilities.position.PositionCodec;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+/**
+ * JDBC implementation of position inserts. Uniqueness is enforced by the database on the hash and packed text, a
+ * duplicate insert is rolled back to a savepoint instead of failing the transaction. Databases without sequences fall
+ * back to entity inserts.
+ */
+public class ChessPositionRepositoryImpl implements ChessPositionRepositoryCustom {
+    private Logger logger = LoggerFactory.getLogger(ChessPositionRepositoryImpl.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private String sequenceStatement;
+
+    @Autowired
+    public ChessPositionRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getDialect();
+
+        if (dialect.supportsSequences()) {
+            this.sequenceStatement = dialect.getSequenceNextValString("chessposition_seq");
+        } else {
+            logger.warn("Database has no sequence support, concurrent position inserts will fail");
+        }
+    }
+
+    @Override
+    public Long insertIfAbsent(String positionText) {
+        if (sequenceStatement == null) {
+            ChessClubPosition position = new ChessClubPosition(positionText);
+            entityManager.persist(position);
+            entityManager.flush();
+            return position.getId();
+        }
+
+        Long positionId = jdbcTemplate.queryForObject(sequenceStatement, Long.class);
+        boolean packable = PositionCodec.canEncode(positionText);
+
+        boolean inserted = UniqueInsert.insert(jdbcTemplate,
+                "INSERT INTO chessposition (id, text, packedText, positionHash) VALUES (?, ?, ?, ?)",
+                positionId,
+                packable ? null : positionText,
+                packable ? PositionCodec.encode(positionText) : null,
+                ZobristHash.hash(positionText));
+
+        return inserted ? positionId : null;
+    }
+}
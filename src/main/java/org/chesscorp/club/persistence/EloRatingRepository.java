@@ -2,12 +2,33 @@ package org.chesscorp.club.persistence;
 
 import org.chesscorp.club.model.game.EloRating;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
-public interface EloRatingRepository extends JpaRepository<EloRating, Number> {
+public interface EloRatingRepository extends JpaRepository<EloRating, Number>, EloRatingRepositoryCustom {
 
     EloRating findFirstByPlayerIdOrderByIdDesc(Long playerId);
 
     List<EloRating> findByPlayerIdOrderByScoreDateAsc(Long playerId);
+
+    long countByPlayerId(Long playerId);
+
+    /**
+     * Get the identifier of the latest rating of a player.
+     *
+     * @param playerId the player identifier
+     * @return the highest rating identifier, or null if the player has not been rated yet
+     */
+    @Query("SELECT MAX(r.id) FROM EloRating r WHERE r.player.id = ?1")
+    Long findLatestIdByPlayerId(Long playerId);
+
+    /**
+     * Get the date of the latest rating.
+     *
+     * @return the highest score date, or null if no game has been rated yet
+     */
+    @Query("SELECT MAX(r.scoreDate) FROM EloRating r")
+    OffsetDateTime findLatestScoreDate();
 }
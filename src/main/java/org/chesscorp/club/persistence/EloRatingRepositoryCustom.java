@@ -0,0 +1,26 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.dto.EloRatingRecord;
+
+import java.util.Collection;
+
+/**
+ * Bulk rating operations, bypassing the persistence context.
+ */
+public interface EloRatingRepositoryCustom {
+
+    /**
+     * Insert rating history rows in JDBC batches.
+     *
+     * @param records the ratings to insert
+     */
+    void insertRatings(Collection<EloRatingRecord> records);
+
+    /**
+     * Set the current rating and games played count of players in JDBC batches. Players already loaded in the
+     * current persistence context are not refreshed.
+     *
+     * @param records the latest rating of each player to update
+     */
+    void updatePlayerRatings(Collection<EloRatingRecord> records);
+}
@@ -0,0 +1,73 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.dto.EloRatingRecord;
+import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.EloRating;
+import org.chesscorp.club.model.people.Player;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC implementation of bulk rating operations. Identifiers are drawn from the rating sequence within the insert
+ * statement itself, so that no round trip is needed per row. Databases without sequences fall back to entity
+ * inserts.
+ */
+public class EloRatingRepositoryImpl implements EloRatingRepositoryCustom {
+    private Logger logger = LoggerFactory.getLogger(EloRatingRepositoryImpl.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private String insertStatement;
+
+    @Autowired
+    public EloRatingRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getDialect();
+
+        if (dialect.supportsSequences()) {
+            this.insertStatement = "INSERT INTO EloRating (id, scoreDate, player_id, chessGame_id, eloRating) VALUES ("
+                    + dialect.getSelectSequenceNextValString("elorating_seq") + ", ?, ?, ?, ?)";
+        } else {
+            logger.warn("Database has no sequence support, ratings will be inserted one by one");
+        }
+    }
+
+    @Override
+    public void insertRatings(Collection<EloRatingRecord> records) {
+        if (insertStatement == null) {
+            records.forEach(r -> entityManager.persist(new EloRating(
+                    entityManager.getReference(Player.class, r.getPlayerId()),
+                    entityManager.getReference(ChessGame.class, r.getGameId()),
+                    r.getEloRating())));
+            entityManager.flush();
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(insertStatement, records.stream()
+                .map(r -> new Object[]{
+                        Timestamp.from(r.getScoreDate().toInstant()), r.getPlayerId(), r.getGameId(), r.getEloRating()
+                })
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void updatePlayerRatings(Collection<EloRatingRecord> records) {
+        jdbcTemplate.batchUpdate("UPDATE Player SET eloRating = ?, gamesPlayed = ? WHERE id = ?", records.stream()
+                .map(r -> new Object[]{r.getEloRating(), r.getGamesPlayed(), r.getPlayerId()})
+                .collect(Collectors.toList()));
+    }
+}
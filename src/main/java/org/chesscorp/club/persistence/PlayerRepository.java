@@ -3,8 +3,12 @@ package org.chesscorp.club.persistence;
 import org.chesscorp.club.model.people.ExternalPlayer;
 import org.chesscorp.club.model.people.Player;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -16,4 +20,34 @@ public interface PlayerRepository extends JpaRepository<Player, Number> {
 
     @Query(value = "SELECT p from Player p")
     Stream<Player> streamAllPlayers();
+
+    /**
+     * Clear the current rating of all players, typically before ratings are computed again.
+     *
+     * @return number of players updated
+     */
+    @Modifying
+    @Query(value = "UPDATE Player p SET p.eloRating = NULL, p.gamesPlayed = 0")
+    int resetRatings();
+
+    /**
+     * Load a player and lock it until the end of the transaction, typically to update its rating.
+     *
+     * @param id the player identifier
+     * @return the locked player
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT p from Player p WHERE p.id = ?1")
+    Player findOneForUpdate(Long id);
+
+    /**
+     * Load players and lock them until the end of the transaction, in identifier order so that concurrent lockers
+     * can't deadlock.
+     *
+     * @param ids the player identifiers
+     * @return the locked players
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT p from Player p WHERE p.id IN ?1 ORDER BY p.id")
+    List<Player> findAllForUpdate(Collection<Long> ids);
 }
@@ -3,10 +3,25 @@ package org.chesscorp.club.persistence;
 import org.chesscorp.club.model.robot.RobotCacheEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 /**
  * Persistence of robots moves.
  */
-public interface RobotCacheRepository extends JpaRepository<RobotCacheEntry, Long> {
+public interface RobotCacheRepository extends JpaRepository<RobotCacheEntry, Long>, RobotCacheRepositoryCustom {
+
+    /**
+     * Find cached moves by position hash. Callers compare the position text to rule out collisions.
+     *
+     * @param positionHash Zobrist hash of the position
+     * @param engine       robot engine
+     * @param parameters   robot parameters
+     * @return the cached entries sharing this hash, usually one at most
+     */
+    List<RobotCacheEntry> findByPositionHashAndEngineAndParameters(Long positionHash, String engine,
+                                                                   String parameters);
+
+    List<RobotCacheEntry> findFirst1000ByPositionHashIsNull();
 
-    RobotCacheEntry findOneByEngineAndParametersAndPosition(String engine, String parameters, String position);
+    List<RobotCacheEntry> findFirst1000ByIdGreaterThanAndPositionIsNotNullOrderByIdAsc(Long entryId);
 }
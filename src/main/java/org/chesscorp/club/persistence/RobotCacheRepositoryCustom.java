@@ -0,0 +1,18 @@
+package org.chesscorp.club.persistence;
+
+/**
+ * Robot cache inserts that are safe against concurrent games.
+ */
+public interface RobotCacheRepositoryCustom {
+
+    /**
+     * Store a robot move unless another transaction already cached a move for the same position.
+     *
+     * @param engine       robot engine
+     * @param parameters   robot parameters
+     * @param position     position text
+     * @param pgnMoveText  the move played by the robot
+     * @return true if the move was stored, false if the position was already cached
+     */
+    boolean insertIfAbsent(String engine, String parameters, String position, String pgnMoveText);
+}
@@ -0,0 +1,62 @@
+package org.chesscorp.club.persistence;
+
+import org.chesscorp.club.model.robot.RobotCacheEntry;
+import org.chesscorp.club.utilities.position.PositionCodec;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+/**
+ * JDBC implementation of robot cache inserts, see {@link ChessPositionRepositoryImpl}.
+ */
+public class RobotCacheRepositoryImpl implements RobotCacheRepositoryCustom {
+    private Logger logger = LoggerFactory.getLogger(RobotCacheRepositoryImpl.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JdbcTemplate jdbcTemplate;
+    private String insertStatement;
+
+    @Autowired
+    public RobotCacheRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getDialect();
+
+        if (dialect.supportsSequences()) {
+            this.insertStatement = "INSERT INTO robotcache "
+                    + "(id, engine, parameters, position, packedPosition, positionHash, pgnMoveText) VALUES ("
+                    + dialect.getSelectSequenceNextValString("robotcache_seq") + ", ?, ?, ?, ?, ?, ?)";
+        } else {
+            logger.warn("Database has no sequence support, concurrent robot cache inserts will fail");
+        }
+    }
+
+    @Override
+    public boolean insertIfAbsent(String engine, String parameters, String position, String pgnMoveText) {
+        if (insertStatement == null) {
+            entityManager.persist(new RobotCacheEntry(engine, parameters, position, pgnMoveText));
+            entityManager.flush();
+            return true;
+        }
+
+        boolean packable = PositionCodec.canEncode(position);
+
+        return UniqueInsert.insert(jdbcTemplate, insertStatement,
+                engine,
+                parameters,
+                packable ? null : position,
+                packable ? PositionCodec.encode(position) : null,
+                ZobristHash.hash(position),
+                pgnMoveText);
+    }
+}
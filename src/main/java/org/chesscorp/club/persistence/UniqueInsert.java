@@ -0,0 +1,60 @@
+package org.chesscorp.club.persistence;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Inserts that give way to a concurrent insert of the same unique key. The statement runs behind a savepoint so that
+ * a unique constraint violation leaves the surrounding transaction usable.
+ */
+final class UniqueInsert {
+
+    private UniqueInsert() {
+    }
+
+    /**
+     * Run an insert statement unless it violates a unique constraint.
+     *
+     * @param jdbcTemplate the template bound to the current transaction
+     * @param sql          the insert statement
+     * @param args         the statement arguments, possibly null
+     * @return true if the row was inserted, false if a row with the same unique key already exists
+     */
+    static boolean insert(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    StatementCreatorUtils.setParameterValue(statement, i + 1, SqlTypeValue.TYPE_UNKNOWN, args[i]);
+                }
+
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                if (!(jdbcTemplate.getExceptionTranslator().translate("insert", sql, e)
+                        instanceof DuplicateKeyException)) {
+                    throw e;
+                }
+
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+
+                return false;
+            }
+
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+
+            return true;
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package org.chesscorp.club.service;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.chesscorp.club.dto.ChessExplorerMove;
+
+import java.util.List;
+
+/**
+ * Opening explorer: results of the moves played from each position in finished games.
+ */
+public interface ChessExplorerService {
+
+    /**
+     * Add the result of a finished game to the aggregates of all the positions it went through. Within a transaction,
+     * aggregates are only updated once it is committed.
+     *
+     * @param pgnMoves the game moves, in any notation accepted by the PGN marshaller
+     * @param status   the game final status
+     */
+    void recordGame(List<String> pgnMoves, ChessGameStatus status);
+
+    /**
+     * Add the result of a finished game whose positions are already known.
+     *
+     * @param pgnMoves  the game moves, in canonical PGN notation
+     * @param positions the positions reached after each move, in fixed notation
+     * @param status    the game final status
+     */
+    void recordGame(List<String> pgnMoves, List<String> positions, ChessGameStatus status);
+
+    /**
+     * Get the moves played from a position.
+     *
+     * @param pgnMoves the moves leading to the position from the initial position
+     * @return the moves played from this position with their results, most frequent first
+     */
+    List<ChessExplorerMove> getContinuations(List<String> pgnMoves);
+}
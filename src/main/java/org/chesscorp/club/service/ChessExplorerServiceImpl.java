@@ -0,0 +1,258 @@
+package org.chesscorp.club.service;
+
+import org.alcibiade.chess.model.ChessException;
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.alcibiade.chess.model.ChessMovePath;
+import org.alcibiade.chess.model.ChessPosition;
+import org.alcibiade.chess.persistence.PgnMarshaller;
+import org.alcibiade.chess.persistence.PositionMarshaller;
+import org.alcibiade.chess.rules.ChessHelper;
+import org.alcibiade.chess.rules.ChessRules;
+import org.chesscorp.club.dto.ChessExplorerMove;
+import org.chesscorp.club.exception.InvalidChessMoveException;
+import org.chesscorp.club.model.stats.ChessExplorerEntry;
+import org.chesscorp.club.persistence.ChessExplorerRepository;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Opening explorer maintained incrementally, one finished game at a time.
+ * <p>
+ * Results are accumulated for the current transaction and only added to the aggregates once it is committed, in a
+ * separate transaction, so that a rolled back game or import batch is never counted and a conflict on the aggregates
+ * never rolls back a game. Aggregates are updated in key order, and the whole update is retried if a concurrent
+ * transaction created one of them first.
+ * </p>
+ */
+@Component
+public class ChessExplorerServiceImpl implements ChessExplorerService {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private Logger logger = LoggerFactory.getLogger(ChessExplorerServiceImpl.class);
+    private ChessExplorerRepository chessExplorerRepository;
+    private ChessRules chessRules;
+    private PgnMarshaller pgnMarshaller;
+    private PositionMarshaller positionMarshaller;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ChessExplorerServiceImpl(ChessExplorerRepository chessExplorerRepository,
+                                    ChessRules chessRules,
+                                    PgnMarshaller pgnMarshaller,
+                                    @Qualifier("fixed") PositionMarshaller positionMarshaller,
+                                    PlatformTransactionManager transactionManager) {
+        this.chessExplorerRepository = chessExplorerRepository;
+        this.chessRules = chessRules;
+        this.pgnMarshaller = pgnMarshaller;
+        this.positionMarshaller = positionMarshaller;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void recordGame(List<String> pgnMoves, ChessGameStatus status) {
+        if (status == ChessGameStatus.OPEN) {
+            return;
+        }
+
+        List<String> canonicalMoves = new ArrayList<>(pgnMoves.size());
+        List<String> positions = new ArrayList<>(pgnMoves.size());
+        ChessPosition position = chessRules.getInitialPosition();
+
+        try {
+            for (String pgnMove : pgnMoves) {
+                ChessMovePath path = pgnMarshaller.convertPgnToMove(position, pgnMove);
+                canonicalMoves.add(pgnMarshaller.convertMoveToPgn(position, path));
+                position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
+                positions.add(positionMarshaller.convertPositionToString(position));
+            }
+        } catch (ChessException e) {
+            throw new IllegalStateException("Failed to replay game moves " + pgnMoves, e);
+        }
+
+        recordGame(canonicalMoves, positions, status);
+    }
+
+    @Override
+    public void recordGame(List<String> pgnMoves, List<String> positions, ChessGameStatus status) {
+        if (status == ChessGameStatus.OPEN) {
+            return;
+        }
+
+        int resultIndex = status == ChessGameStatus.WHITEWON ? 0 : status == ChessGameStatus.PAT ? 1 : 2;
+
+        // A game is counted once per position and move, even if it went through a position several times
+        Set<ExplorerKey> gameKeys = new HashSet<>();
+        String positionText = positionMarshaller.convertPositionToString(chessRules.getInitialPosition());
+
+        for (int i = 0; i < pgnMoves.size(); i++) {
+            gameKeys.add(new ExplorerKey(ZobristHash.hash(positionText), pgnMoves.get(i)));
+            positionText = positions.get(i);
+        }
+
+        SortedMap<ExplorerKey, long[]> transactionResults = getTransactionResults();
+        SortedMap<ExplorerKey, long[]> results = transactionResults == null ? new TreeMap<>() : transactionResults;
+        gameKeys.forEach(key -> results.computeIfAbsent(key, k -> new long[3])[resultIndex] += 1);
+
+        if (transactionResults == null) {
+            saveResults(results);
+        }
+
+        logger.debug("Recorded {} game in explorer, {} positions pending", status, results.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ChessExplorerMove> getContinuations(List<String> pgnMoves) {
+        ChessPosition position = chessRules.getInitialPosition();
+
+        for (String pgnMove : pgnMoves) {
+            try {
+                position = ChessHelper.applyMoveAndSwitch(chessRules, position,
+                        pgnMarshaller.convertPgnToMove(position, pgnMove));
+            } catch (ChessException e) {
+                throw new InvalidChessMoveException(pgnMove, e);
+            }
+        }
+
+        long positionHash = ZobristHash.hash(positionMarshaller.convertPositionToString(position));
+
+        return chessExplorerRepository.findByPositionHash(positionHash).stream()
+                .map(e -> new ChessExplorerMove(e.getPgnMove(), e.getWhiteWins(), e.getDraws(), e.getBlackWins()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Add results to the aggregates in a new transaction, creating missing aggregates. The whole update is attempted
+     * again if a concurrent transaction inserted one of the new aggregates first.
+     *
+     * @param results the results to add, by aggregate key
+     */
+    private void saveResults(SortedMap<ExplorerKey, long[]> results) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.execute(status -> {
+                    results.forEach((key, r) -> {
+                        if (chessExplorerRepository.addResults(key.positionHash, key.pgnMove, r[0], r[1], r[2]) == 0) {
+                            chessExplorerRepository.save(
+                                    new ChessExplorerEntry(key.positionHash, key.pgnMove, r[0], r[1], r[2]));
+                        }
+                    });
+                    chessExplorerRepository.flush();
+                    return null;
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+
+                logger.debug("Concurrent explorer update, attempt {} of {}", attempt, MAX_ATTEMPTS);
+            }
+        }
+    }
+
+    /**
+     * Get the results recorded by the current transaction, added to the aggregates on commit.
+     *
+     * @return the results by aggregate key, or null if there is no active transaction
+     */
+    @SuppressWarnings("unchecked")
+    private SortedMap<ExplorerKey, long[]> getTransactionResults() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        SortedMap<ExplorerKey, long[]> transactionResults =
+                (SortedMap<ExplorerKey, long[]>) TransactionSynchronizationManager.getResource(this);
+
+        if (transactionResults == null) {
+            SortedMap<ExplorerKey, long[]> results = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, results);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(ChessExplorerServiceImpl.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(ChessExplorerServiceImpl.this, results);
+                }
+
+                @Override
+                public void afterCommit() {
+                    // The games are committed at this point, a failure only leaves the explorer behind
+                    try {
+                        saveResults(results);
+                    } catch (RuntimeException e) {
+                        logger.warn("Failed to record {} explorer aggregates", results.size(), e);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChessExplorerServiceImpl.this);
+                }
+            });
+            transactionResults = results;
+        }
+
+        return transactionResults;
+    }
+
+    /**
+     * Aggregate key, ordered by position hash then move so that concurrent updates lock rows in the same order.
+     */
+    private static class ExplorerKey implements Comparable<ExplorerKey> {
+        private final long positionHash;
+        private final String pgnMove;
+
+        ExplorerKey(long positionHash, String pgnMove) {
+            this.positionHash = positionHash;
+            this.pgnMove = pgnMove;
+        }
+
+        @Override
+        public int compareTo(ExplorerKey other) {
+            int result = Long.compare(positionHash, other.positionHash);
+            return result != 0 ? result : pgnMove.compareTo(other.pgnMove);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ExplorerKey that = (ExplorerKey) o;
+            return positionHash == that.positionHash && pgnMove.equals(that.pgnMove);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(positionHash) + pgnMove.hashCode();
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package org.chesscorp.club.service;
 
+import org.alcibiade.chess.model.ChessGameStatus;
 import org.alcibiade.chess.persistence.PgnGameModel;
+import org.chesscorp.club.dto.ChessGameSummary;
+import org.chesscorp.club.dto.ValidatedPgnGame;
 import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.ChessGameState;
 import org.chesscorp.club.model.people.Player;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ChessGameService {
 
@@ -12,6 +17,39 @@ public interface ChessGameService {
 
     ChessGame getGame(Number id);
 
+    /**
+     * Load a game from the database, discarding the copy the current persistence context may hold, typically before
+     * retrying an update that failed on a concurrent modification.
+     *
+     * @param id the game identifier
+     * @return the game as currently stored
+     */
+    ChessGame reloadGame(Number id);
+
+    /**
+     * Get the status of a game without loading its moves.
+     *
+     * @param id the game identifier
+     * @return the game status, null if the game does not exist
+     */
+    ChessGameStatus getGameStatus(Number id);
+
+    /**
+     * Count the moves of a game without loading them.
+     *
+     * @param id the game identifier
+     * @return the number of moves played
+     */
+    long getMoveCount(Number id);
+
+    /**
+     * Get the materialized state of a game: position, legal moves and next player. States of open games are cached.
+     *
+     * @param id the game identifier
+     * @return the current game state
+     */
+    ChessGameState getGameState(Number id);
+
     ChessGame move(ChessGame game, String pgnMove);
 
     /**
@@ -23,6 +61,28 @@ public interface ChessGameService {
      */
     List<ChessGame> searchGames(Number playerId, Boolean open);
 
+    /**
+     * Search for a page of games, returning summaries that do not require to load moves. Pages are delimited by
+     * game identifiers, so that fetching a page does not depend on the number of games before it.
+     *
+     * @param playerId identifier of a player that is search both as white or black
+     * @param open     if null, return all games, otherwise return games which are open/ended based on this flag
+     * @param afterId  identifier of the last game of the previous page, 0 for the first page
+     * @param pageSize maximum number of games to return
+     * @return summaries of the matching games, by creation order
+     */
+    List<ChessGameSummary> searchGameSummaries(Number playerId, Boolean open, long afterId, int pageSize);
+
+    /**
+     * Stream summaries of all the games of a player. The stream has to be consumed and closed within the calling
+     * transaction.
+     *
+     * @param playerId identifier of a player that is search both as white or black
+     * @param open     if null, return all games, otherwise return games which are open/ended based on this flag
+     * @return summaries of the matching games, by creation order
+     */
+    Stream<ChessGameSummary> streamGameSummaries(Number playerId, Boolean open);
+
     /**
      * Import a single game from a PGN data stream.
      *
@@ -31,6 +91,24 @@ public interface ChessGameService {
      */
     ChessGame batchImport(PgnGameModel pgnGameModel);
 
+    /**
+     * Check the moves of a PGN game and compute the positions it goes through. This does not access the database and
+     * can be called from any thread.
+     *
+     * @param pgnGameModel the PGN game model
+     * @return the validated game
+     * @throws IllegalStateException if a move is invalid
+     */
+    ValidatedPgnGame validateImport(PgnGameModel pgnGameModel);
+
+    /**
+     * Import a single validated game.
+     *
+     * @param validatedGame the validated game
+     * @return the game model if the game is new and has just been imported, null if the game was already present.
+     */
+    ChessGame batchImport(ValidatedPgnGame validatedGame);
+
     /**
      * Resign on an existing game. It is accounted as a loss if a complete turn has been played.
      *
@@ -39,4 +117,12 @@ public interface ChessGameService {
      * @return the updated game model.
      */
     ChessGame resign(ChessGame game, Player player);
+
+    /**
+     * Repair games stored by previous releases: initialize missing versions and move counts, rebuild missing position
+     * snapshots and compute missing fingerprints of imported games.
+     *
+     * @return number of games updated
+     */
+    long repairGames();
 }
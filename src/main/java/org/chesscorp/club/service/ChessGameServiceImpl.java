@@ -3,12 +3,18 @@ package org.chesscorp.club.service;
 import org.alcibiade.chess.model.*;
 import org.alcibiade.chess.persistence.PgnGameModel;
 import org.alcibiade.chess.persistence.PgnMarshaller;
+import org.alcibiade.chess.persistence.PositionMarshaller;
 import org.alcibiade.chess.rules.ChessHelper;
 import org.alcibiade.chess.rules.ChessRules;
+import org.chesscorp.club.dto.ChessGameSummary;
+import org.chesscorp.club.dto.ExternalPlayerReference;
+import org.chesscorp.club.dto.ValidatedPgnGame;
 import org.chesscorp.club.exception.InvalidChessMoveException;
 import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.ChessGameState;
 import org.chesscorp.club.model.game.ChessMove;
 import org.chesscorp.club.model.game.EloRating;
+import org.chesscorp.club.model.people.ExternalPlayer;
 import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.persistence.ChessGameRepository;
 import org.chesscorp.club.persistence.ChessMoveRepository;
@@ -16,22 +22,35 @@ import org.chesscorp.club.persistence.EloRatingRepository;
 import org.chesscorp.club.persistence.PlayerRepository;
 import org.chesscorp.club.service.factories.PlayerFactory;
 import org.chesscorp.club.utilities.elo.EloRatingCalculator;
+import org.chesscorp.club.utilities.hash.GameFingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 public class ChessGameServiceImpl implements ChessGameService {
     private Logger logger = LoggerFactory.getLogger(ChessGameServiceImpl.class);
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private ChessGameRepository chessGameRepository;
     private ChessMoveRepository chessMoveRepository;
     private PlayerRepository playerRepository;
@@ -39,13 +58,18 @@ public class ChessGameServiceImpl implements ChessGameService {
     private PlayerFactory playerFactory;
     private ChessRules chessRules;
     private PgnMarshaller pgnMarshaller;
+    private PositionMarshaller positionMarshaller;
     private EloRatingCalculator eloRatingCalculator;
+    private ChessGameStateCache chessGameStateCache;
+    private ChessExplorerService chessExplorerService;
 
     @Autowired
     public ChessGameServiceImpl(ChessGameRepository chessGameRepository, ChessMoveRepository chessMoveRepository,
                                 PlayerRepository playerRepository, EloRatingRepository eloRatingRepository,
                                 PlayerFactory playerFactory, ChessRules chessRules, PgnMarshaller pgnMarshaller,
-                                EloRatingCalculator eloRatingCalculator) {
+                                @Qualifier("fixed") PositionMarshaller positionMarshaller,
+                                EloRatingCalculator eloRatingCalculator, ChessGameStateCache chessGameStateCache,
+                                ChessExplorerService chessExplorerService) {
         this.chessGameRepository = chessGameRepository;
         this.chessMoveRepository = chessMoveRepository;
         this.playerRepository = playerRepository;
@@ -53,7 +77,10 @@ public class ChessGameServiceImpl implements ChessGameService {
         this.playerFactory = playerFactory;
         this.chessRules = chessRules;
         this.pgnMarshaller = pgnMarshaller;
+        this.positionMarshaller = positionMarshaller;
         this.eloRatingCalculator = eloRatingCalculator;
+        this.chessGameStateCache = chessGameStateCache;
+        this.chessExplorerService = chessExplorerService;
     }
 
     @Override
@@ -67,6 +94,7 @@ public class ChessGameServiceImpl implements ChessGameService {
         }
 
         ChessGame game = new ChessGame(white, black);
+        game.setPosition(positionMarshaller.convertPositionToString(chessRules.getInitialPosition()));
         game = chessGameRepository.save(game);
         return game;
     }
@@ -77,6 +105,50 @@ public class ChessGameServiceImpl implements ChessGameService {
         return chessGameRepository.getOne(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ChessGame reloadGame(Number id) {
+        ChessGame game = chessGameRepository.findOne(id);
+
+        if (game != null) {
+            entityManager.detach(game);
+            game = chessGameRepository.findOne(id);
+        }
+
+        return game;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChessGameStatus getGameStatus(Number id) {
+        return chessGameRepository.findStatusById(id.longValue());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getMoveCount(Number id) {
+        return chessMoveRepository.countByGameId(id.longValue());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChessGameState getGameState(Number id) {
+        // Checked against the stored moves so that an outdated state is never served
+        int moveCount = (int) chessMoveRepository.countByGameId(id.longValue());
+        ChessGameState state = chessGameStateCache.get(id.longValue(), moveCount);
+
+        if (state == null) {
+            ChessGame game = chessGameRepository.getOne(id);
+            state = createGameState(game, getCurrentPosition(game));
+
+            if (game.getStatus() == ChessGameStatus.OPEN) {
+                chessGameStateCache.offer(state);
+            }
+        }
+
+        return state;
+    }
+
     @Override
     @Transactional
     public ChessGame move(ChessGame game, String pgnMove) {
@@ -86,22 +158,37 @@ public class ChessGameServiceImpl implements ChessGameService {
         }
 
         try {
-            ChessPosition position = chessRules.getInitialPosition();
+            ChessGameState state = chessGameStateCache.get(game.getId(), game.getMoves().size());
 
-            for (ChessMove gameMove : game.getMoves()) {
-                ChessMovePath path = pgnMarshaller.convertPgnToMove(position, gameMove.getPgn());
-                position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
+            if (state == null) {
+                state = createGameState(game, getCurrentPosition(game));
+            }
+
+            ChessPosition position = state.getPosition();
+            ChessMovePath path = state.getLegalMove(pgnMove);
+            String canonicalPgn = pgnMove;
+
+            if (path == null) {
+                // Not in canonical notation, such as a missing check marker or a coordinate move
+                path = pgnMarshaller.convertPgnToMove(position, pgnMove);
+                canonicalPgn = pgnMarshaller.convertMoveToPgn(position, path);
+
+                if (state.getLegalMove(canonicalPgn) == null) {
+                    throw new InvalidChessMoveException("Move " + pgnMove + " is not legal in game " + game.getId());
+                }
             }
 
-            ChessMovePath path = pgnMarshaller.convertPgnToMove(position, pgnMove);
-            String canonicalPgn = pgnMarshaller.convertMoveToPgn(position, path);
             ChessPosition updatedPosition = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
             ChessGameStatus status = chessRules.getStatus(updatedPosition);
+            String updatedPositionText = positionMarshaller.convertPositionToString(updatedPosition);
 
             ChessMove move = chessMoveRepository.save(new ChessMove(game, OffsetDateTime.now(), canonicalPgn));
-            ChessGame updatedGame = chessGameRepository.save(new ChessGame(game, move, status));
+            ChessGame updatedGame = chessGameRepository.save(new ChessGame(game, move, status, updatedPositionText));
 
-            if (updatedGame.getStatus() != ChessGameStatus.OPEN) {
+            if (updatedGame.getStatus() == ChessGameStatus.OPEN) {
+                chessGameStateCache.update(createGameState(updatedGame, updatedPosition));
+            } else {
+                chessGameStateCache.evict(updatedGame.getId());
                 updatePostGame(game);
             }
 
@@ -111,6 +198,56 @@ public class ChessGameServiceImpl implements ChessGameService {
         }
     }
 
+    /**
+     * Get the position reached in a game, from its snapshot when available.
+     *
+     * @param game the game
+     * @return the position after the last move
+     */
+    private ChessPosition getCurrentPosition(ChessGame game) {
+        if (game.getPosition() != null) {
+            return positionMarshaller.convertStringToPosition(game.getPosition());
+        }
+
+        logger.debug("No position snapshot for game {}, replaying {} moves", game.getId(), game.getMoves().size());
+        return replayPosition(game);
+    }
+
+    /**
+     * Materialize the state of a game from its current position.
+     *
+     * @param game     the game
+     * @param position the position after the last move of the game
+     * @return the game state
+     */
+    private ChessGameState createGameState(ChessGame game, ChessPosition position) {
+        Map<String, ChessMovePath> legalMoves = new HashMap<>();
+
+        for (ChessMovePath path : chessRules.getAvailableMoves(position)) {
+            legalMoves.put(pgnMarshaller.convertMoveToPgn(position, path), path);
+        }
+
+        return new ChessGameState(game.getId(), game.getMoves().size(), position, legalMoves,
+                game.getNextPlayer().getId());
+    }
+
+    /**
+     * Rebuild the current position of a game by applying all its moves on the initial position.
+     *
+     * @param game the game
+     * @return the position after the last move
+     */
+    private ChessPosition replayPosition(ChessGame game) {
+        ChessPosition position = chessRules.getInitialPosition();
+
+        for (ChessMove gameMove : game.getMoves()) {
+            ChessMovePath path = pgnMarshaller.convertPgnToMove(position, gameMove.getPgn());
+            position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
+        }
+
+        return position;
+    }
+
     /**
      * Updates performed when a game has ended.
      *
@@ -133,14 +270,20 @@ public class ChessGameServiceImpl implements ChessGameService {
                 throw new IllegalStateException("Post game triggers can't be run on open games");
         }
 
-        Player whitePlayer = game.getWhitePlayer();
-        Player blackPlayer = game.getBlackPlayer();
+        // Lock players in a stable order so that concurrent game ends can't deadlock
+        Player whitePlayer;
+        Player blackPlayer;
 
-        EloRating ratingW = eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(whitePlayer.getId());
-        EloRating ratingB = eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(blackPlayer.getId());
+        if (game.getWhitePlayer().getId() < game.getBlackPlayer().getId()) {
+            whitePlayer = lockRatedPlayer(game.getWhitePlayer());
+            blackPlayer = lockRatedPlayer(game.getBlackPlayer());
+        } else {
+            blackPlayer = lockRatedPlayer(game.getBlackPlayer());
+            whitePlayer = lockRatedPlayer(game.getWhitePlayer());
+        }
 
-        int rW = ratingW == null ? EloRatingCalculator.INITIAL_RATING : ratingW.getEloRating();
-        int rB = ratingB == null ? EloRatingCalculator.INITIAL_RATING : ratingB.getEloRating();
+        int rW = whitePlayer.getEloRating() == null ? EloRatingCalculator.INITIAL_RATING : whitePlayer.getEloRating();
+        int rB = blackPlayer.getEloRating() == null ? EloRatingCalculator.INITIAL_RATING : blackPlayer.getEloRating();
 
         int eloPoints = eloRatingCalculator.computeRatingDelta(rW, rB, score);
 
@@ -155,12 +298,71 @@ public class ChessGameServiceImpl implements ChessGameService {
 
         eloRatingRepository.save(new EloRating(whitePlayer, game, r2W));
         eloRatingRepository.save(new EloRating(blackPlayer, game, r2B));
+
+        whitePlayer.setRating(r2W, whitePlayer.getGamesPlayed() + 1);
+        blackPlayer.setRating(r2B, blackPlayer.getGamesPlayed() + 1);
+        playerRepository.save(whitePlayer);
+        playerRepository.save(blackPlayer);
+
+        chessExplorerService.recordGame(
+                game.getMoves().stream().map(ChessMove::getPgn).collect(Collectors.toList()),
+                game.getStatus());
+    }
+
+    /**
+     * Lock a player before a rating update. Players rated by previous releases get their current rating from the
+     * rating history.
+     *
+     * @param player the player
+     * @return the locked player, with a games played count
+     */
+    private Player lockRatedPlayer(Player player) {
+        Player locked = playerRepository.findOneForUpdate(player.getId());
+
+        if (locked.getGamesPlayed() == null) {
+            EloRating latest = eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(locked.getId());
+            locked.setRating(latest == null ? null : latest.getEloRating(),
+                    (int) eloRatingRepository.countByPlayerId(locked.getId()));
+        }
+
+        return locked;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ChessGame> searchGames(Number playerId, Boolean open) {
         long longValue = playerId.longValue();
+        List<ChessGameStatus> status = getSearchStatus(open);
+
+        List<ChessGame> games =
+                chessGameRepository.findByWhitePlayerIdAndStatusInOrBlackPlayerIdAndStatusIn(
+                        longValue, status, longValue, status).collect(Collectors.toList());
+        return games;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ChessGameSummary> searchGameSummaries(Number playerId, Boolean open, long afterId, int pageSize) {
+        List<ChessGameStatus> status = getSearchStatus(open);
+        Pageable page = new PageRequest(0, pageSize);
+
+        // Each side is read through its own index, then both pages are merged
+        Map<Long, ChessGameSummary> summaries = new TreeMap<>();
+        chessGameRepository.findWhiteSummaries(playerId.longValue(), status, afterId, page)
+                .forEach(summary -> summaries.put(summary.getId(), summary));
+        chessGameRepository.findBlackSummaries(playerId.longValue(), status, afterId, page)
+                .forEach(summary -> summaries.put(summary.getId(), summary));
+
+        return summaries.values().stream().limit(pageSize).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<ChessGameSummary> streamGameSummaries(Number playerId, Boolean open) {
+        return chessGameRepository.streamSummariesByPlayerIdAndStatusIn(playerId.longValue(), getSearchStatus(open));
+    }
+
+    private List<ChessGameStatus> getSearchStatus(Boolean open) {
         List<ChessGameStatus> status = new ArrayList<>();
 
         if (open == null) {
@@ -176,43 +378,31 @@ public class ChessGameServiceImpl implements ChessGameService {
             status.add(ChessGameStatus.PAT);
         }
 
-        List<ChessGame> games =
-                chessGameRepository.findByWhitePlayerIdAndStatusInOrBlackPlayerIdAndStatusIn(
-                        longValue, status, longValue, status).collect(Collectors.toList());
-        return games;
+        return status;
     }
 
     @Override
     @Transactional
     public ChessGame batchImport(PgnGameModel pgnGameModel) {
-        Player playerW = playerFactory.findOrCreateExternalPlayer(pgnGameModel.getWhitePlayerName());
-        Player playerB = playerFactory.findOrCreateExternalPlayer(pgnGameModel.getBlackPlayerName());
-        OffsetDateTime gameDate = OffsetDateTime.ofInstant(pgnGameModel.getGameDate().toInstant(), ZoneId.systemDefault());
-
-        final PgnGameModel pgnG = pgnGameModel;
-
-        List<ChessGame> matchingGames = chessGameRepository
-                .findByWhitePlayerIdAndBlackPlayerIdAndStartDate(playerW.getId(), playerB.getId(), gameDate)
-                .filter(g -> g.getMoves().stream().map(ChessMove::getPgn).collect(Collectors.toList()).equals(pgnG.getMoves()))
-                .collect(Collectors.toList());
-
-        logger.trace("    - {}: {} vs. {}: {} games matching",
-                pgnGameModel.getGameDate(),
-                pgnGameModel.getWhitePlayerName(),
-                pgnGameModel.getBlackPlayerName(),
-                matchingGames.size());
-
-        if (!matchingGames.isEmpty()) {
-            return null;
-        }
+        return batchImport(validateImport(pgnGameModel));
+    }
 
+    @Override
+    public ValidatedPgnGame validateImport(PgnGameModel pgnGameModel) {
+        List<String> moves = new ArrayList<>(pgnGameModel.getMoves().size());
+        List<String> positions = new ArrayList<>(pgnGameModel.getMoves().size());
         ChessPosition position = chessRules.getInitialPosition();
+
         for (String m : pgnGameModel.getMoves()) {
             try {
-                position = ChessHelper.applyMoveAndSwitch(chessRules, position, pgnMarshaller.convertPgnToMove(position, m));
+                ChessMovePath path = pgnMarshaller.convertPgnToMove(position, m);
+                moves.add(pgnMarshaller.convertMoveToPgn(position, path));
+                position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
             } catch (ChessException e) {
                 throw new IllegalStateException("Error in PGN stream for move " + m, e);
             }
+
+            positions.add(positionMarshaller.convertPositionToString(position));
         }
 
         ChessGameStatus status = ChessGameStatus.OPEN;
@@ -229,16 +419,53 @@ public class ChessGameServiceImpl implements ChessGameService {
                 break;
         }
 
+        return new ValidatedPgnGame(pgnGameModel, status, moves, positions,
+                positionMarshaller.convertPositionToString(position));
+    }
+
+    @Override
+    @Transactional
+    public ChessGame batchImport(ValidatedPgnGame validatedGame) {
+        PgnGameModel pgnGameModel = validatedGame.getPgnGameModel();
+        ExternalPlayerReference playerW =
+                playerFactory.findOrCreateExternalPlayerReference(pgnGameModel.getWhitePlayerName());
+        ExternalPlayerReference playerB =
+                playerFactory.findOrCreateExternalPlayerReference(pgnGameModel.getBlackPlayerName());
+        OffsetDateTime gameDate = OffsetDateTime.ofInstant(pgnGameModel.getGameDate().toInstant(), ZoneId.systemDefault());
+        ChessGameStatus status = validatedGame.getStatus();
+
+        String fingerprint = GameFingerprint.compute(playerW.getNormalizedName(), playerB.getNormalizedName(),
+                gameDate, status, pgnGameModel.getMoves());
+        long matchingGames = chessGameRepository.countByFingerprint(fingerprint);
+
+        logger.trace("    - {}: {} vs. {}: {} games matching",
+                pgnGameModel.getGameDate(),
+                pgnGameModel.getWhitePlayerName(),
+                pgnGameModel.getBlackPlayerName(),
+                matchingGames);
+
+        if (matchingGames > 0) {
+            return null;
+        }
+
         ChessGame chessGame = new ChessGame(
-                playerW, playerB, new ArrayList<>(),
+                entityManager.getReference(ExternalPlayer.class, playerW.getId()),
+                entityManager.getReference(ExternalPlayer.class, playerB.getId()),
+                new ArrayList<>(),
                 gameDate, status, pgnGameModel.getSite(),
                 pgnGameModel.getEvent(), pgnGameModel.getRound()
         );
 
         pgnGameModel.getMoves().forEach(m -> chessGame.addMove(gameDate, m));
+        chessGame.setPosition(validatedGame.getFinalPosition());
+        chessGame.setFingerprint(fingerprint);
         ChessGame result = chessGameRepository.save(chessGame);
         chessGame.getMoves().forEach(chessMoveRepository::save);
 
+        if (status != ChessGameStatus.OPEN) {
+            chessExplorerService.recordGame(validatedGame.getMoves(), validatedGame.getPositions(), status);
+        }
+
         return result;
     }
 
@@ -271,6 +498,8 @@ public class ChessGameServiceImpl implements ChessGameService {
                 break;
         }
 
+        chessGameStateCache.evict(game.getId());
+
         if (game.getMoves().size() >= 2) {
             updatePostGame(game);
         }
@@ -280,4 +509,87 @@ public class ChessGameServiceImpl implements ChessGameService {
         return game;
     }
 
+    @Override
+    @Transactional
+    public long repairGames() {
+        int versionUpdates = chessGameRepository.initializeMissingVersions();
+
+        if (versionUpdates > 0) {
+            logger.info("Initialized version of {} games", versionUpdates);
+        }
+
+        long moveCountUpdates = chessGameRepository.findAllByMoveCountIsNull()
+                .map(game -> {
+                    game.setMoveCount(game.getMoves().size());
+                    return chessGameRepository.save(game);
+                })
+                .collect(Collectors.counting());
+
+        if (moveCountUpdates > 0) {
+            logger.info("Initialized move count of {} games", moveCountUpdates);
+        }
+
+        long positionUpdates = chessGameRepository.findAllByPositionIsNull()
+                .filter(this::updatePosition)
+                .collect(Collectors.counting());
+
+        if (positionUpdates > 0) {
+            logger.info("Initialized position of {} games", positionUpdates);
+        }
+
+        long fingerprintUpdates = chessGameRepository.findImportedGamesWithoutFingerprint()
+                .filter(this::updateFingerprint)
+                .collect(Collectors.counting());
+
+        if (fingerprintUpdates > 0) {
+            logger.info("Initialized fingerprint of {} games", fingerprintUpdates);
+        }
+
+        return versionUpdates + moveCountUpdates + positionUpdates + fingerprintUpdates;
+    }
+
+    /**
+     * Set the position snapshot of a game by replaying its moves. Games that can't be replayed are left untouched
+     * so that they don't prevent other games from being repaired.
+     *
+     * @param game a game without position snapshot
+     * @return true if the snapshot has been set
+     */
+    private boolean updatePosition(ChessGame game) {
+        ChessPosition position;
+
+        try {
+            position = replayPosition(game);
+        } catch (ChessException e) {
+            logger.warn("Failed to replay game {}, position left empty", game.getId(), e);
+            return false;
+        }
+
+        game.setPosition(positionMarshaller.convertPositionToString(position));
+        chessGameRepository.save(game);
+        return true;
+    }
+
+    /**
+     * Set the fingerprint of an imported game, unless it duplicates another game.
+     *
+     * @param game an imported game without fingerprint
+     * @return true if the fingerprint has been set
+     */
+    private boolean updateFingerprint(ChessGame game) {
+        String fingerprint = GameFingerprint.compute(
+                ((ExternalPlayer) game.getWhitePlayer()).getNormalizedName(),
+                ((ExternalPlayer) game.getBlackPlayer()).getNormalizedName(),
+                game.getStartDate(), game.getStatus(),
+                game.getMoves().stream().map(ChessMove::getPgn).collect(Collectors.toList()));
+
+        if (chessGameRepository.countByFingerprint(fingerprint) > 0) {
+            logger.warn("Game {} duplicates an already imported game, fingerprint left empty", game.getId());
+            return false;
+        }
+
+        game.setFingerprint(fingerprint);
+        chessGameRepository.save(game);
+        return true;
+    }
 }
@@ -0,0 +1,99 @@
+package org.chesscorp.club.service;
+
+import org.chesscorp.club.config.CacheConfig;
+import org.chesscorp.club.model.game.ChessGameState;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded cache of open games states, keyed by game identifier.
+ * <p>
+ * Updates are only published once the surrounding transaction has been committed, so that a rolled back move
+ * never becomes visible to other requests.
+ * </p>
+ */
+@Component
+public class ChessGameStateCache {
+    private static final String COMPONENT = "ChessGameStateCache";
+
+    private Logger logger = LoggerFactory.getLogger(ChessGameStateCache.class);
+    private Cache<Long, ChessGameState> cache;
+    private PerformanceMonitor performanceMonitor;
+
+    @Autowired
+    public ChessGameStateCache(CacheManager ehcacheManager, PerformanceMonitor performanceMonitor) {
+        this.cache = ehcacheManager.getCache(CacheConfig.LIVE_GAMES_CACHE, Long.class, ChessGameState.class);
+        this.performanceMonitor = performanceMonitor;
+    }
+
+    /**
+     * Get the cached state of a game.
+     *
+     * @param gameId    the game identifier
+     * @param moveCount the number of moves currently in the game, used to discard outdated states
+     * @return the cached state or null if none matches
+     */
+    public ChessGameState get(Long gameId, int moveCount) {
+        ChessGameState state = cache.get(gameId);
+
+        if (state != null && state.getMoveCount() != moveCount) {
+            logger.debug("Discarding outdated state {} for game at {} moves", state, moveCount);
+            cache.remove(gameId);
+            state = null;
+        }
+
+        performanceMonitor.increment(COMPONENT, state == null ? "miss" : "hit");
+        return state;
+    }
+
+    /**
+     * Store the new state of a game once the current transaction is committed.
+     *
+     * @param state the updated game state
+     */
+    public void update(ChessGameState state) {
+        cache.remove(state.getGameId());
+        afterCommit(() -> cache.put(state.getGameId(), state));
+    }
+
+    /**
+     * Store the state of a game read from the database once the current transaction is committed, unless a state
+     * has been stored meanwhile. A reading transaction may commit after a concurrent move, its state must then not
+     * replace the one published by the move.
+     *
+     * @param state the game state as read
+     */
+    public void offer(ChessGameState state) {
+        afterCommit(() -> cache.putIfAbsent(state.getGameId(), state));
+    }
+
+    /**
+     * Drop the state of a game, typically because it is no longer open.
+     *
+     * @param gameId the game identifier
+     */
+    public void evict(Long gameId) {
+        cache.remove(gameId);
+        afterCommit(() -> cache.remove(gameId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.chesscorp.club.service;
+
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.chesscorp.club.utilities.collections.LongLongLruMap;
+import org.chesscorp.club.utilities.collections.MappedLongLongTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Bounded cache of position identifiers, keyed by position Zobrist hash.
+ * <p>
+ * Identifiers are only published once the surrounding transaction has been committed, so that a rolled back
+ * position is never returned. As distinct positions may share a hash, each entry also holds the check hash of its
+ * position and lookups with another check are misses, so that hits can be used without reading the position.
+ * </p>
+ * <p>
+ * When a dedup file is configured, entries evicted from the heap remain available from an off-heap table mapped on
+ * this file, which is kept between runs so that bulk imports don't restart cold. The table stores the check hash of
+ * each position next to its identifier, a lookup with another check is a miss. As the file may outlive the positions
+ * it was built from, a sample of its entries is verified against the database on startup.
+ * </p>
+ */
+@Component
+public class ChessPositionIdCache {
+    private static final String COMPONENT = "ChessPositionIdCache";
+    private static final long ABSENT = -1;
+    private static final int DEDUP_SAMPLE_SIZE = 32;
+
+    private Logger logger = LoggerFactory.getLogger(ChessPositionIdCache.class);
+    private LongLongLruMap cache;
+    private MappedLongLongTable dedupTable;
+    private PerformanceMonitor performanceMonitor;
+
+    public ChessPositionIdCache(PerformanceMonitor performanceMonitor, int cacheSize) {
+        this(performanceMonitor, cacheSize, null);
+    }
+
+    public ChessPositionIdCache(PerformanceMonitor performanceMonitor, int cacheSize, MappedLongLongTable dedupTable) {
+        this.cache = new LongLongLruMap(cacheSize);
+        this.dedupTable = dedupTable;
+        this.performanceMonitor = performanceMonitor;
+    }
+
+    @Autowired
+    public ChessPositionIdCache(PerformanceMonitor performanceMonitor,
+                                @Value("${chesscorp.position.cacheSize:100000}") int cacheSize,
+                                @Value("${chesscorp.position.dedupFile:}") String dedupFile,
+                                @Value("${chesscorp.position.dedupCapacity:16777216}") long dedupCapacity)
+            throws IOException {
+        this(performanceMonitor, cacheSize,
+                dedupFile.isEmpty() ? null : new MappedLongLongTable(Paths.get(dedupFile), dedupCapacity));
+    }
+
+    /**
+     * Get the identifier of a position, from the heap or from the dedup table.
+     *
+     * @param positionHash  the position hash
+     * @param positionCheck the position check hash
+     * @return the identifier of a position with this hash, or null if not cached
+     */
+    public Long get(long positionHash, long positionCheck) {
+        long positionId;
+
+        synchronized (this) {
+            positionId = cache.get(positionHash, positionCheck, ABSENT);
+
+            if (positionId == ABSENT && dedupTable != null) {
+                positionId = dedupTable.get(positionHash, positionCheck, ABSENT);
+                performanceMonitor.increment(COMPONENT, positionId == ABSENT ? "dedup-miss" : "dedup-hit");
+
+                if (positionId != ABSENT) {
+                    cache.put(positionHash, positionCheck, positionId);
+                }
+            }
+        }
+
+        performanceMonitor.increment(COMPONENT, positionId == ABSENT ? "miss" : "hit");
+        return positionId == ABSENT ? null : positionId;
+    }
+
+    /**
+     * Store the identifier of a position once the current transaction is committed. Entries put by a suspended
+     * transaction are kept apart from those of the inner transactions.
+     *
+     * @param positionHash  the position hash
+     * @param positionCheck the position check hash
+     * @param positionId    the position identifier
+     */
+    public void put(long positionHash, long positionCheck, long positionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                store(positionHash, positionCheck, positionId);
+            }
+            return;
+        }
+
+        PendingEntries pending = (PendingEntries) TransactionSynchronizationManager.getResource(this);
+
+        if (pending == null) {
+            PendingEntries newPending = new PendingEntries();
+            TransactionSynchronizationManager.bindResource(this, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(ChessPositionIdCache.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(ChessPositionIdCache.this, newPending);
+                }
+
+                @Override
+                public void afterCommit() {
+                    synchronized (ChessPositionIdCache.this) {
+                        newPending.forEach(ChessPositionIdCache.this::store);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChessPositionIdCache.this);
+                }
+            });
+            pending = newPending;
+        }
+
+        pending.add(positionHash, positionCheck, positionId);
+    }
+
+    /**
+     * Drop the off-heap entries if they refer to positions beyond the highest one in the database, or if a sample of
+     * them does not match the database, which happens when the dedup file was built against another database.
+     *
+     * @param maxPositionId the highest position identifier in the database, 0 if there is none
+     * @param verifier      checks that an identifier refers to a position with the given hashes
+     */
+    public synchronized void checkDedupTable(long maxPositionId, EntryVerifier verifier) {
+        if (dedupTable == null) {
+            return;
+        }
+
+        if (dedupTable.getMaxValue() > maxPositionId) {
+            logger.warn("Position dedup table refers to position {} beyond {}, clearing {} entries",
+                    dedupTable.getMaxValue(), maxPositionId, dedupTable.size());
+            dedupTable.clear();
+            return;
+        }
+
+        int[] sampled = new int[1];
+        boolean[] valid = new boolean[]{true};
+
+        dedupTable.forEach((positionHash, positionCheck, positionId) -> {
+            valid[0] = verifier.verify(positionHash, positionCheck, positionId);
+            return valid[0] && ++sampled[0] < DEDUP_SAMPLE_SIZE;
+        });
+
+        if (!valid[0]) {
+            logger.warn("Position dedup table does not match the database, clearing {} entries", dedupTable.size());
+            dedupTable.clear();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (dedupTable != null) {
+            dedupTable.close();
+            dedupTable = null;
+        }
+    }
+
+    private void store(long positionHash, long positionCheck, long positionId) {
+        cache.put(positionHash, positionCheck, positionId);
+
+        if (dedupTable != null && !dedupTable.put(positionHash, positionCheck, positionId)) {
+            performanceMonitor.increment(COMPONENT, "dedup-full");
+        }
+    }
+
+    /**
+     * Ratio of lookups answered by the cache since startup.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        long hits = performanceMonitor.getCounter(COMPONENT, "hit");
+        long total = hits + performanceMonitor.getCounter(COMPONENT, "miss");
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Entries waiting for the current transaction to be committed.
+     */
+    private static class PendingEntries {
+        private long[] entries = new long[96];
+        private int size;
+
+        void add(long positionHash, long positionCheck, long positionId) {
+            if (size + 3 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+
+            entries[size++] = positionHash;
+            entries[size++] = positionCheck;
+            entries[size++] = positionId;
+        }
+
+        void forEach(EntryConsumer consumer) {
+            for (int i = 0; i < size; i += 3) {
+                consumer.accept(entries[i], entries[i + 1], entries[i + 2]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(long positionHash, long positionCheck, long positionId);
+    }
+
+    @FunctionalInterface
+    public interface EntryVerifier {
+        boolean verify(long positionHash, long positionCheck, long positionId);
+    }
+}
@@ -1,6 +1,7 @@
 package org.chesscorp.club.service;
 
 import org.chesscorp.club.dto.ChessAnalysis;
+import org.chesscorp.club.dto.ChessRelatedGames;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.model.stats.ChessClubPosition;
 
@@ -12,7 +13,8 @@ import java.util.List;
 public interface ChessPositionService {
 
     /**
-     * Compute positions for new moves in the repository.
+     * Compute positions for new moves in the repository. Moves are processed in chunks, each one committed in its
+     * own transaction, apart from any transaction of the caller.
      *
      * @return number of moves updated
      */
@@ -26,13 +28,22 @@ public interface ChessPositionService {
      */
     long updateGamePositions(Number gameId);
 
+    /**
+     * Link the moves of a newly imported game to positions computed beforehand, without replaying the game.
+     *
+     * @param game      a game that has just been imported, none of its moves being indexed yet
+     * @param positions the positions reached after each move, in fixed notation
+     * @return number of moves updated
+     */
+    long indexImportedGame(ChessGame game, List<String> positions);
+
     /**
      * Find games that are related based on the current position.
      *
      * @param gameId identifier of a game
-     * @return a list of game which had the same position
+     * @return summaries of the first games which had the same position, and the total number of such games
      */
-    List<ChessGame> findRelatedGames(Number gameId);
+    ChessRelatedGames findRelatedGames(Number gameId);
 
     /**
      * Find a position in the repository or create it implicitly.
@@ -49,4 +60,20 @@ public interface ChessPositionService {
      * @return an analysis model
      */
     ChessAnalysis getGameAnalysis(Number gameId);
+
+    /**
+     * Compute the missing hash keys of positions and robot cache entries created before hashes were introduced.
+     * Rows are updated in chunks, each one committed in its own transaction.
+     *
+     * @return the number of rows updated
+     */
+    long updatePositionHashes();
+
+    /**
+     * Convert the text positions of existing positions and robot cache entries to their packed binary form. Rows
+     * are packed in chunks, each one committed in its own transaction.
+     *
+     * @return the number of rows packed
+     */
+    long packPositions();
 }
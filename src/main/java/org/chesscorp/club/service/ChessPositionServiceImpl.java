@@ -1,32 +1,50 @@
 package org.chesscorp.club.service;
 
 import org.alcibiade.chess.model.ChessException;
+import org.alcibiade.chess.model.ChessGameStatus;
 import org.alcibiade.chess.model.ChessMovePath;
 import org.alcibiade.chess.model.ChessPosition;
 import org.alcibiade.chess.persistence.PgnMarshaller;
 import org.alcibiade.chess.persistence.PositionMarshaller;
 import org.alcibiade.chess.rules.ChessHelper;
 import org.alcibiade.chess.rules.ChessRules;
+import org.chesscorp.club.config.CacheConfig;
 import org.chesscorp.club.dto.ChessAnalysis;
 import org.chesscorp.club.dto.ChessAnalysisMove;
+import org.chesscorp.club.dto.ChessGameSummary;
+import org.chesscorp.club.dto.ChessRelatedGames;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.model.game.ChessMove;
+import org.chesscorp.club.model.robot.RobotCacheEntry;
 import org.chesscorp.club.model.stats.ChessClubPosition;
 import org.chesscorp.club.model.stats.ChessMoveToPosition;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
 import org.chesscorp.club.persistence.ChessGameRepository;
 import org.chesscorp.club.persistence.ChessMoveRepository;
 import org.chesscorp.club.persistence.ChessMoveToPositionRepository;
 import org.chesscorp.club.persistence.ChessPositionRepository;
+import org.chesscorp.club.persistence.RobotCacheRepository;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.util.ArrayList;
-import java.util.List;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -35,39 +53,78 @@ import java.util.stream.IntStream;
  */
 @Component
 public class ChessPositionServiceImpl implements ChessPositionService {
-    private static final List<ChessGame> EMPTY_GAMES_LIST = new ArrayList<>();
+    private static final int RELATED_GAMES_LIMIT = 10;
     private Logger logger = LoggerFactory.getLogger(ChessPositionServiceImpl.class);
     private ChessPositionRepository chessPositionRepository;
     private ChessGameRepository chessGameRepository;
     private ChessMoveToPositionRepository chessMoveToPositionRepository;
     private ChessMoveRepository chessMoveRepository;
+    private RobotCacheRepository robotCacheRepository;
     private ChessRules chessRules;
     private PgnMarshaller pgnMarshaller;
     private MessagingService messagingService;
     private PositionMarshaller positionMarshaller;
+    private PerformanceMonitor performanceMonitor;
+    private ChessPositionIdCache chessPositionIdCache;
+    private Cache<Long, ChessAnalysis> analysisCache;
+    private TransactionTemplate transactionTemplate;
+    private ForkJoinPool indexPool;
+    private int chunkSize;
 
     @Autowired
     public ChessPositionServiceImpl(ChessPositionRepository chessPositionRepository,
                                     ChessGameRepository chessGameRepository,
                                     ChessMoveToPositionRepository chessMoveToPositionRepository,
-                                    ChessMoveRepository chessMoveRepository, ChessRules chessRules,
+                                    ChessMoveRepository chessMoveRepository,
+                                    RobotCacheRepository robotCacheRepository, ChessRules chessRules,
                                     PgnMarshaller pgnMarshaller, MessagingService messagingService,
-                                    @Qualifier("fixed") PositionMarshaller positionMarshaller) {
+                                    @Qualifier("fixed") PositionMarshaller positionMarshaller,
+                                    PerformanceMonitor performanceMonitor,
+                                    ChessPositionIdCache chessPositionIdCache,
+                                    CacheManager ehcacheManager,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${chesscorp.position.indexThreads:1}") int indexThreads,
+                                    @Value("${chesscorp.position.chunkSize:1000}") int chunkSize) {
         this.chessPositionRepository = chessPositionRepository;
         this.chessGameRepository = chessGameRepository;
         this.chessMoveToPositionRepository = chessMoveToPositionRepository;
         this.chessMoveRepository = chessMoveRepository;
+        this.robotCacheRepository = robotCacheRepository;
         this.chessRules = chessRules;
         this.pgnMarshaller = pgnMarshaller;
         this.messagingService = messagingService;
         this.positionMarshaller = positionMarshaller;
+        this.performanceMonitor = performanceMonitor;
+        this.chessPositionIdCache = chessPositionIdCache;
+        this.analysisCache = ehcacheManager.getCache(CacheConfig.GAME_ANALYSIS_CACHE, Long.class, ChessAnalysis.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.indexPool = indexThreads > 1 ? new ForkJoinPool(indexThreads) : null;
+        this.chunkSize = chunkSize;
     }
 
     @Override
-    @Transactional(propagation = Propagation.SUPPORTS)
     public long updateMovePositions() {
         logger.debug("Updating position tables");
 
+        long total = 0;
+        int indexed;
+
+        do {
+            indexed = transactionTemplate.execute(status -> indexNextChunk());
+            total += indexed;
+        } while (indexed > 0);
+
+        return total;
+    }
+
+    /**
+     * Index the next chunk of moves following the last indexed one. Each chunk runs in its own transaction, even
+     * when the caller has one, so that an interrupted run resumes from the last committed chunk.
+     *
+     * @return the number of moves indexed
+     */
+    private int indexNextChunk() {
         ChessMoveToPosition lastProcessedMove = chessMoveToPositionRepository.findFirstByOrderByChessMoveIdDesc();
         logger.debug("Last processed move is {}", lastProcessedMove);
 
@@ -77,149 +134,407 @@ public class ChessPositionServiceImpl implements ChessPositionService {
             lastMoveId = lastProcessedMove.getChessMoveId();
         }
 
-        long movesProcessedCount = chessMoveRepository.findAllByIdGreaterThan(lastMoveId).map(m -> {
-            ChessGame game = m.getGame();
+        List<ChessMove> pendingMoves = chessMoveRepository.findByIdGreaterThanOrderByIdAsc(lastMoveId,
+                new PageRequest(0, chunkSize));
+        indexMoves(pendingMoves);
 
-            try {
-                ChessPosition position = chessRules.getInitialPosition();
-                for (ChessMove move : game.getMoves()) {
-                    ChessMovePath path = pgnMarshaller.convertPgnToMove(position, move.getPgn());
-                    position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
+        return pendingMoves.size();
+    }
 
-                    if (move.getId().equals(m.getId())) {
-                        break;
-                    }
-                }
+    /**
+     * Index positions reached by a set of moves. Moves are grouped by game, and each game is replayed once up to its
+     * last pending move, instead of once per move. Games are replayed by the index pool when one is configured, while
+     * positions are resolved and saved by the calling thread only.
+     *
+     * @param moves the moves to index
+     * @return the number of moves indexed
+     */
+    private long indexMoves(Collection<ChessMove> moves) {
+        Map<ChessGame, Set<Long>> pendingMovesByGame = new LinkedHashMap<>();
+        moves.forEach(m -> pendingMovesByGame.computeIfAbsent(m.getGame(), g -> new HashSet<>()).add(m.getId()));
+
+        List<GameReplay> replays = pendingMovesByGame.entrySet().stream()
+                .map(e -> new GameReplay(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
 
-                String positionText = positionMarshaller.convertPositionToString(position);
-                logger.trace("Processing move {} - {}", m.getId(), positionText);
+        long startTime = System.currentTimeMillis();
+        List<List<ReplayedMove>> replayedGames = replayGames(replays);
 
-                ChessClubPosition clubPosition = chessPositionRepository.findOneByText(positionText);
-                if (clubPosition == null) {
-                    clubPosition = chessPositionRepository.saveAndFlush(new ChessClubPosition(positionText));
-                    messagingService.notifyPositionCreated(clubPosition.getId());
-                }
+        Map<String, ChessClubPosition> positionCache = new HashMap<>();
+        List<ChessMoveToPosition> links = new ArrayList<>(moves.size());
+        long pliesReplayed = 0;
+        long pliesReplayedPerMove = 0;
 
-                chessMoveToPositionRepository.saveAndFlush(new ChessMoveToPosition(m.getId(), clubPosition));
+        for (List<ReplayedMove> replayedMoves : replayedGames) {
+            for (ReplayedMove replayedMove : replayedMoves) {
+                links.add(indexMove(replayedMove, positionCache));
+                pliesReplayedPerMove += replayedMove.ply;
+            }
 
-                return m;
-            } catch (ChessException chessEx) {
-                throw new IllegalStateException("Failed to parse game " + game.getId(), chessEx);
+            if (!replayedMoves.isEmpty()) {
+                pliesReplayed += replayedMoves.get(replayedMoves.size() - 1).ply;
             }
-        }).collect(Collectors.counting());
+        }
+
+        saveLinks(links);
 
-        return movesProcessedCount;
+        long duration = System.currentTimeMillis() - startTime;
+        performanceMonitor.register("ChessPositionService", "index-moves", links.size(), "move", duration);
+        performanceMonitor.register("ChessPositionService", "replay", pliesReplayed, "ply", duration);
+        logger.debug("Indexed {} moves from {} games replaying {} plies ({} with one replay per move), "
+                        + "position cache hit rate {}", links.size(), replays.size(), pliesReplayed,
+                pliesReplayedPerMove, String.format("%.3f", chessPositionIdCache.getHitRate()));
+
+        return links.size();
     }
 
-    @Override
-    @Transactional
-    public long updateGamePositions(Number gameId) {
-        logger.debug("Updating position for game {}", gameId);
+    /**
+     * Replay games, in parallel if an index pool is configured.
+     *
+     * @param replays the games to replay
+     * @return the replayed moves of each game, in the same order
+     */
+    private List<List<ReplayedMove>> replayGames(List<GameReplay> replays) {
+        if (indexPool == null || replays.size() < 2) {
+            return replays.stream().map(this::replayGame).collect(Collectors.toList());
+        }
 
-        ChessGame game = chessGameRepository.getOne(gameId);
+        try {
+            return indexPool.submit(() -> replays.parallelStream()
+                    .map(this::replayGame)
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying games", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException("Failed to replay games", e.getCause());
+        }
+    }
+
+    /**
+     * Replay a game up to its last pending move. This only relies on the chess rules and marshallers, never on the
+     * persistence context, so that it can run on any thread.
+     *
+     * @param replay the game moves
+     * @return the positions reached by pending moves
+     */
+    private List<ReplayedMove> replayGame(GameReplay replay) {
+        List<ReplayedMove> replayedMoves = new ArrayList<>(replay.pendingMoveIds.size());
 
         try {
-            long updates = 0;
             ChessPosition position = chessRules.getInitialPosition();
-            for (ChessMove move : game.getMoves()) {
-                ChessMovePath path = pgnMarshaller.convertPgnToMove(position, move.getPgn());
-                position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
 
-                ChessMoveToPosition moveToPosition = chessMoveToPositionRepository.findOne(move.getId());
-                if (moveToPosition == null) {
-                    String positionText = positionMarshaller.convertPositionToString(position);
-                    ChessClubPosition clubPosition = chessPositionRepository.findOneByText(positionText);
-                    if (clubPosition == null) {
-                        clubPosition = chessPositionRepository.saveAndFlush(new ChessClubPosition(positionText));
-                        messagingService.notifyPositionCreated(clubPosition.getId());
-                    }
+            for (int i = 0; i < replay.moveIds.size() && replayedMoves.size() < replay.pendingMoveIds.size(); i++) {
+                ChessMovePath path = pgnMarshaller.convertPgnToMove(position, replay.pgnMoves.get(i));
+                position = ChessHelper.applyMoveAndSwitch(chessRules, position, path);
+                Long moveId = replay.moveIds.get(i);
 
-                    chessMoveToPositionRepository.saveAndFlush(new ChessMoveToPosition(move.getId(), clubPosition));
-                    updates += 1;
+                if (replay.pendingMoveIds.contains(moveId)) {
+                    replayedMoves.add(new ReplayedMove(moveId, i + 1,
+                            positionMarshaller.convertPositionToString(position)));
                 }
             }
-
-            return updates;
         } catch (ChessException chessEx) {
-            throw new IllegalStateException("Failed to parse game " + game.getId(), chessEx);
+            throw new IllegalStateException("Failed to parse game " + replay.gameId, chessEx);
         }
+
+        return replayedMoves;
+    }
+
+    /**
+     * Link a move to the position it leads to, creating the position if needed. Positions already seen in the
+     * current batch are resolved from the cache without a query.
+     *
+     * @param replayedMove  the move and the position it leads to
+     * @param positionCache positions resolved in the current batch, by text
+     * @return the link to be saved
+     */
+    private ChessMoveToPosition indexMove(ReplayedMove replayedMove, Map<String, ChessClubPosition> positionCache) {
+        logger.trace("Processing move {} - {}", replayedMove.moveId, replayedMove.positionText);
+
+        ChessClubPosition clubPosition = positionCache.computeIfAbsent(replayedMove.positionText,
+                this::findOrCreatePosition);
+        return new ChessMoveToPosition(replayedMove.moveId, clubPosition);
+    }
+
+    /**
+     * Flush new positions, then insert the move links in a single JDBC batch.
+     *
+     * @param links the links to insert
+     */
+    private void saveLinks(List<ChessMoveToPosition> links) {
+        chessPositionRepository.flush();
+        chessMoveToPositionRepository.insertLinks(links);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<ChessGame> findRelatedGames(Number gameId) {
-        ChessGame game = chessGameRepository.findOne(gameId.longValue());
-        if (game == null) {
-            return EMPTY_GAMES_LIST;
-        }
+    @Transactional
+    public long updateGamePositions(Number gameId) {
+        logger.debug("Updating position for game {}", gameId);
+
+        ChessGame game = chessGameRepository.getOne(gameId);
+        Set<Long> pendingMoveIds = game.getMoves().stream()
+                .map(ChessMove::getId)
+                .filter(moveId -> chessMoveToPositionRepository.findOne(moveId) == null)
+                .collect(Collectors.toSet());
+
+        Map<String, ChessClubPosition> positionCache = new HashMap<>();
+        List<ChessMoveToPosition> links = replayGame(new GameReplay(game, pendingMoveIds)).stream()
+                .map(replayedMove -> indexMove(replayedMove, positionCache))
+                .collect(Collectors.toList());
 
+        saveLinks(links);
+        return links.size();
+    }
+
+    @Override
+    @Transactional
+    public long indexImportedGame(ChessGame game, List<String> positions) {
         List<ChessMove> moves = game.getMoves();
-        if (moves.isEmpty()) {
-            return EMPTY_GAMES_LIST;
-        }
 
-        ChessMove lastMove = moves.get(moves.size() - 1);
-        ChessMoveToPosition moveToPosition = chessMoveToPositionRepository.getOne(lastMove.getId());
-        ChessClubPosition position = moveToPosition.getChessPosition();
+        if (moves.size() != positions.size()) {
+            throw new IllegalArgumentException("Game " + game.getId() + " has " + moves.size() + " moves but "
+                    + positions.size() + " positions");
+        }
 
-        List<ChessGame> relatedGames = chessMoveToPositionRepository
-                .findFirst10ByChessClubPositionId(position.getId()).stream()
-                .map(mtp -> chessMoveRepository.getOne(mtp.getChessMoveId()))
-                .filter(move -> !move.getGame().getId().equals(game.getId()))
-                .map(ChessMove::getGame)
+        Map<String, ChessClubPosition> positionCache = new HashMap<>();
+        List<ChessMoveToPosition> links = IntStream.range(0, moves.size())
+                .mapToObj(i -> indexMove(new ReplayedMove(moves.get(i).getId(), i + 1, positions.get(i)),
+                        positionCache))
                 .collect(Collectors.toList());
 
-        return relatedGames;
+        saveLinks(links);
+        return links.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChessRelatedGames findRelatedGames(Number gameId) {
+        Long id = gameId.longValue();
+        List<ChessGameSummary> games = chessMoveToPositionRepository.findRelatedSummaries(id,
+                new PageRequest(0, RELATED_GAMES_LIMIT));
+
+        // A partial page holds all the other games, the count is only queried when it can't be deduced
+        long gameCount = games.isEmpty() || games.size() == RELATED_GAMES_LIMIT
+                ? chessMoveToPositionRepository.countRelatedGames(id)
+                : games.size() + 1;
+
+        return new ChessRelatedGames(id, gameCount, games);
     }
 
     @Override
     @Transactional
     public ChessClubPosition findOrCreatePosition(String positionText) {
-        ChessClubPosition position = chessPositionRepository.findOneByText(positionText);
+        long positionHash = ZobristHash.hash(positionText);
+        long positionCheck = ZobristHash.check(positionText);
+        Long cachedPositionId = chessPositionIdCache.get(positionHash, positionCheck);
+
+        // Cached identifiers are verified by the check hash, a reference is enough to link moves to them
+        if (cachedPositionId != null) {
+            return chessPositionRepository.getOne(cachedPositionId);
+        }
+
+        ChessClubPosition position = findPosition(positionHash, positionText);
 
         if (position == null) {
-            position = chessPositionRepository.save(new ChessClubPosition(positionText));
-            messagingService.notifyPositionCreated(position.getId());
+            Long positionId = chessPositionRepository.insertIfAbsent(positionText);
+
+            if (positionId != null) {
+                messagingService.notifyPositionCreated(positionId);
+                position = chessPositionRepository.findOne(positionId);
+            } else {
+                // A concurrent indexer stored the position first, its insert is committed once ours gave way
+                performanceMonitor.increment("ChessPosition", "insert-conflict");
+                position = findPosition(positionHash, positionText);
+
+                if (position == null) {
+                    throw new IllegalStateException("Conflicting position insert not visible: " + positionText);
+                }
+            }
         }
 
+        chessPositionIdCache.put(positionHash, positionCheck, position.getId());
         return position;
     }
 
+    private ChessClubPosition findPosition(long positionHash, String positionText) {
+        return chessPositionRepository.findByPositionHash(positionHash)
+                .stream()
+                .filter(p -> p.getText().equals(positionText))
+                .findFirst()
+                .orElse(null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ChessAnalysis getGameAnalysis(Number gameId) {
+        ChessAnalysis analysis = analysisCache.get(gameId.longValue());
+        performanceMonitor.increment("ChessAnalysisCache", analysis == null ? "miss" : "hit");
+
+        if (analysis != null) {
+            return analysis;
+        }
+
         ChessGame game = chessGameRepository.findOne(gameId.longValue());
         if (game == null) {
             return null;
         }
 
-        List<ChessAnalysisMove> movesAnalysis = IntStream.range(0, game.getMoves().size())
-                .mapToObj(moveIndex -> {
-                    ChessMove move = game.getMoves().get(moveIndex);
-                    ChessMoveToPosition moveToPosition = chessMoveToPositionRepository.findOne(move.getId());
-
-                    if (moveToPosition == null) {
-                        return null;
-                    }
-
-                    ChessClubPosition chessPosition = moveToPosition.getChessPosition();
+        Map<Long, ChessClubPosition> scoredPositions = new HashMap<>();
+        chessMoveToPositionRepository.findScoredByGameId(game.getId())
+                .forEach(mtp -> scoredPositions.put(mtp.getChessMoveId(), mtp.getChessPosition()));
 
-                    if (chessPosition == null || chessPosition.getScore() == null) {
-                        return null;
-                    }
-
-                    ChessAnalysisMove moveAnalysis = new ChessAnalysisMove(
+        List<ChessMove> moves = game.getMoves();
+        List<ChessAnalysisMove> movesAnalysis = IntStream.range(0, moves.size())
+                .filter(moveIndex -> scoredPositions.containsKey(moves.get(moveIndex).getId()))
+                .mapToObj(moveIndex -> {
+                    ChessMove move = moves.get(moveIndex);
+                    ChessClubPosition chessPosition = scoredPositions.get(move.getId());
+                    return new ChessAnalysisMove(
                             move.getId(),
                             moveIndex,
                             chessPosition.getScore(),
                             chessPosition.getExpected()
                     );
-
-                    return moveAnalysis;
                 })
-                .filter(ma -> (ma != null))
                 .collect(Collectors.toList());
 
-        return new ChessAnalysis(game.getId(), movesAnalysis);
+        analysis = new ChessAnalysis(game.getId(), movesAnalysis);
+
+        // Once a finished game has all its positions scored, its analysis can no longer change
+        if (game.getStatus() != ChessGameStatus.OPEN && movesAnalysis.size() == moves.size()) {
+            analysisCache.put(game.getId(), analysis);
+        }
+
+        return analysis;
+    }
+
+    @Override
+    public long updatePositionHashes() {
+        long total = 0;
+        int updated;
+
+        do {
+            updated = transactionTemplate.execute(status -> {
+                List<ChessClubPosition> positions = chessPositionRepository.findFirst1000ByPositionHashIsNull();
+                positions.forEach(ChessClubPosition::updatePositionHash);
+                return positions.size();
+            });
+            total += updated;
+        } while (updated > 0);
+
+        do {
+            updated = transactionTemplate.execute(status -> {
+                List<RobotCacheEntry> entries = robotCacheRepository.findFirst1000ByPositionHashIsNull();
+                entries.forEach(RobotCacheEntry::updatePositionHash);
+                return entries.size();
+            });
+            total += updated;
+        } while (updated > 0);
+
+        if (total > 0) {
+            logger.info("Computed {} missing position hashes", total);
+        }
+
+        return total;
+    }
+
+    @Override
+    public long packPositions() {
+        AtomicLong packed = new AtomicLong();
+        AtomicLong lastId = new AtomicLong();
+        int examined;
+
+        do {
+            examined = transactionTemplate.execute(status -> {
+                List<ChessClubPosition> positions = chessPositionRepository
+                        .findFirst1000ByIdGreaterThanAndTextIsNotNullOrderByIdAsc(lastId.get());
+                positions.forEach(p -> {
+                    if (p.pack()) {
+                        packed.incrementAndGet();
+                    }
+                    lastId.set(p.getId());
+                });
+                return positions.size();
+            });
+        } while (examined > 0);
+
+        lastId.set(0);
+
+        do {
+            examined = transactionTemplate.execute(status -> {
+                List<RobotCacheEntry> entries = robotCacheRepository
+                        .findFirst1000ByIdGreaterThanAndPositionIsNotNullOrderByIdAsc(lastId.get());
+                entries.forEach(e -> {
+                    if (e.pack()) {
+                        packed.incrementAndGet();
+                    }
+                    lastId.set(e.getId());
+                });
+                return entries.size();
+            });
+        } while (examined > 0);
+
+        if (packed.get() > 0) {
+            logger.info("Packed {} positions", packed.get());
+        }
+
+        return packed.get();
+    }
+
+    @PostConstruct
+    public void checkPositionIdCache() {
+        ChessClubPosition lastPosition = chessPositionRepository.findFirstByOrderByIdDesc();
+        chessPositionIdCache.checkDedupTable(lastPosition == null ? 0 : lastPosition.getId(),
+                (positionHash, positionCheck, positionId) -> {
+                    ChessClubPosition position = chessPositionRepository.findOne(positionId);
+                    return position != null
+                            && ZobristHash.hash(position.getText()) == positionHash
+                            && ZobristHash.check(position.getText()) == positionCheck;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (indexPool != null) {
+            indexPool.shutdown();
+        }
+    }
+
+    /**
+     * Moves of a game to replay, copied out of the persistence context.
+     */
+    private static class GameReplay {
+        private final Long gameId;
+        private final List<Long> moveIds;
+        private final List<String> pgnMoves;
+        private final Set<Long> pendingMoveIds;
+
+        GameReplay(ChessGame game, Set<Long> pendingMoveIds) {
+            this.gameId = game.getId();
+            this.moveIds = game.getMoves().stream().map(ChessMove::getId).collect(Collectors.toList());
+            this.pgnMoves = game.getMoves().stream().map(ChessMove::getPgn).collect(Collectors.toList());
+            this.pendingMoveIds = pendingMoveIds;
+        }
+    }
+
+    /**
+     * Position reached by a move, as computed by a replay.
+     */
+    private static class ReplayedMove {
+        private final Long moveId;
+        private final int ply;
+        private final String positionText;
+
+        ReplayedMove(Long moveId, int ply, String positionText) {
+            this.moveId = moveId;
+            this.ply = ply;
+            this.positionText = positionText;
+        }
     }
 }
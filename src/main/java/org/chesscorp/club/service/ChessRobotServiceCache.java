@@ -8,6 +8,7 @@ import org.alcibiade.chess.rules.ChessRules;
 import org.chesscorp.club.model.people.RobotPlayer;
 import org.chesscorp.club.model.robot.RobotCacheEntry;
 import org.chesscorp.club.persistence.RobotCacheRepository;
+import org.chesscorp.club.utilities.position.ZobristHash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,22 +55,23 @@ public class ChessRobotServiceCache implements ChessRobotService {
             ChessPosition position = ChessHelper.movesToPosition(chessRules, pgnMarshaller, moves);
             String positionText = positionMarshaller.convertPositionToString(position);
 
-            RobotCacheEntry cacheEntry = robotCacheRepository.findOneByEngineAndParametersAndPosition(
+            RobotCacheEntry cacheEntry = robotCacheRepository.findByPositionHashAndEngineAndParameters(
+                    ZobristHash.hash(positionText),
                     robotPlayer.getEngine(),
-                    robotPlayer.getParameters(),
-                    positionText
-            );
+                    robotPlayer.getParameters()
+            ).stream().filter(e -> e.getPosition().equals(positionText)).findFirst().orElse(null);
 
             if (cacheEntry == null) {
                 result = directService.play(robotPlayer, moves);
-                cacheEntry = robotCacheRepository.save(new RobotCacheEntry(robotPlayer.getEngine(), robotPlayer.getParameters(), positionText, result));
+                // Another game may have cached this position meanwhile, its move is as good as ours
+                robotCacheRepository.insertIfAbsent(robotPlayer.getEngine(), robotPlayer.getParameters(),
+                        positionText, result);
                 status = Status.MIS;
             } else {
+                result = cacheEntry.getPgnMoveText();
                 status = Status.HIT;
             }
 
-            result = cacheEntry.getPgnMoveText();
-
         } else {
             status = Status.NOC;
             result = directService.play(robotPlayer, moves);
@@ -0,0 +1,25 @@
+package org.chesscorp.club.service;
+
+/**
+ * Batch computation of Elo ratings over the game history.
+ */
+public interface EloRatingService {
+
+    /**
+     * Rate all finished games that have no rating yet, such as imported games, in chronological order. Games are
+     * processed in chunks committed separately, so an interrupted run is resumed by the next one. Games dated before
+     * already rated games, such as late imports of old games, are rated on top of current ratings: a rebuild applies
+     * them in chronological order.
+     *
+     * @return the number of games rated
+     */
+    long rateGames();
+
+    /**
+     * Drop the whole rating history and compute it again from all finished games, typically after a change of the
+     * rating formula.
+     *
+     * @return the number of games rated
+     */
+    long rebuildRatings();
+}
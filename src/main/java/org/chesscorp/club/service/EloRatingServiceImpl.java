@@ -0,0 +1,206 @@
+package org.chesscorp.club.service;
+
+import com.google.common.collect.Lists;
+import org.chesscorp.club.dto.ChessGameResult;
+import org.chesscorp.club.dto.EloRatingRecord;
+import org.chesscorp.club.model.game.EloRating;
+import org.chesscorp.club.model.people.Player;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.chesscorp.club.persistence.ChessGameRepository;
+import org.chesscorp.club.persistence.EloRatingRepository;
+import org.chesscorp.club.persistence.PlayerRepository;
+import org.chesscorp.club.utilities.collections.LongIntHashMap;
+import org.chesscorp.club.utilities.elo.EloRatingCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Ratings are computed in memory by chunks of games, and written with bulk inserts. Computed ratings are dated by the
+ * game start date. The players of each chunk are locked while it is rated, so games ending meanwhile wait for the
+ * chunk to be committed and are then rated on top of it.
+ */
+@Component
+public class EloRatingServiceImpl implements EloRatingService {
+    private static final int LOCK_BATCH_SIZE = 1000;
+
+    private Logger logger = LoggerFactory.getLogger(EloRatingServiceImpl.class);
+
+    private ChessGameRepository chessGameRepository;
+    private EloRatingRepository eloRatingRepository;
+    private PlayerRepository playerRepository;
+    private EloRatingCalculator eloRatingCalculator;
+    private PerformanceMonitor performanceMonitor;
+    private TransactionTemplate transactionTemplate;
+    private int chunkSize;
+
+    @Autowired
+    public EloRatingServiceImpl(ChessGameRepository chessGameRepository, EloRatingRepository eloRatingRepository,
+                                PlayerRepository playerRepository, EloRatingCalculator eloRatingCalculator,
+                                PerformanceMonitor performanceMonitor, PlatformTransactionManager transactionManager,
+                                @Value("${chesscorp.elo.chunkSize:5000}") int chunkSize) {
+        this.chessGameRepository = chessGameRepository;
+        this.eloRatingRepository = eloRatingRepository;
+        this.playerRepository = playerRepository;
+        this.eloRatingCalculator = eloRatingCalculator;
+        this.performanceMonitor = performanceMonitor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long rateGames() {
+        OffsetDateTime latestScoreDate = transactionTemplate.execute(status -> eloRatingRepository.findLatestScoreDate());
+        ChessGameResult cursor = null;
+        long total = 0;
+        long backdated = 0;
+        List<ChessGameResult> results;
+
+        do {
+            performanceMonitor.mark();
+            ChessGameResult chunkCursor = cursor;
+            results = transactionTemplate.execute(status -> rateChunk(chunkCursor));
+            performanceMonitor.register("EloRatingService", "rate-games", results.size(), "game");
+
+            for (ChessGameResult result : results) {
+                if (latestScoreDate != null && result.getStartDate().isBefore(latestScoreDate)) {
+                    backdated += 1;
+                }
+            }
+
+            total += results.size();
+            cursor = results.isEmpty() ? cursor : results.get(results.size() - 1);
+        } while (!results.isEmpty());
+
+        if (backdated > 0) {
+            logger.warn("Rated {} games dated before already rated games on top of current ratings, "
+                    + "rebuild ratings to apply them in chronological order", backdated);
+        }
+
+        logger.info("Rated {} games", total);
+        return total;
+    }
+
+    @Override
+    public long rebuildRatings() {
+        transactionTemplate.execute(status -> {
+            eloRatingRepository.deleteAllInBatch();
+            playerRepository.resetRatings();
+            return null;
+        });
+
+        return rateGames();
+    }
+
+    /**
+     * Rate the next chunk of unrated games.
+     *
+     * @param cursor the last game of the previous chunk, null for the first chunk
+     * @return the rated games
+     */
+    private List<ChessGameResult> rateChunk(ChessGameResult cursor) {
+        PageRequest page = new PageRequest(0, chunkSize);
+        List<ChessGameResult> results = cursor == null
+                ? chessGameRepository.findUnratedResults(page)
+                : chessGameRepository.findUnratedResultsAfter(cursor.getStartDate(), cursor.getId(), page);
+
+        if (results.isEmpty()) {
+            return results;
+        }
+
+        LongIntHashMap ratings = new LongIntHashMap();
+        LongIntHashMap gamesPlayed = new LongIntHashMap();
+        lockPlayers(results, ratings, gamesPlayed);
+
+        List<EloRatingRecord> records = new ArrayList<>(results.size() * 2);
+        Map<Long, EloRatingRecord> latestRecords = new HashMap<>();
+
+        for (ChessGameResult result : results) {
+            long whiteId = result.getWhitePlayerId();
+            long blackId = result.getBlackPlayerId();
+            int rW = ratings.get(whiteId, EloRatingCalculator.INITIAL_RATING);
+            int rB = ratings.get(blackId, EloRatingCalculator.INITIAL_RATING);
+            int eloPoints = eloRatingCalculator.computeRatingDelta(rW, rB, getWhiteScore(result));
+
+            ratings.put(whiteId, rW + eloPoints);
+            ratings.put(blackId, rB - eloPoints);
+
+            EloRatingRecord whiteRecord = new EloRatingRecord(whiteId, result.getId(), rW + eloPoints,
+                    gamesPlayed.add(whiteId, 1, 0), result.getStartDate());
+            EloRatingRecord blackRecord = new EloRatingRecord(blackId, result.getId(), rB - eloPoints,
+                    gamesPlayed.add(blackId, 1, 0), result.getStartDate());
+
+            records.add(whiteRecord);
+            records.add(blackRecord);
+            latestRecords.put(whiteId, whiteRecord);
+            latestRecords.put(blackId, blackRecord);
+        }
+
+        eloRatingRepository.insertRatings(records);
+        eloRatingRepository.updatePlayerRatings(latestRecords.values());
+
+        return results;
+    }
+
+    /**
+     * Lock the players of a chunk, in the same order as game ends do, and read their current ratings.
+     *
+     * @param results     the games of the chunk
+     * @param ratings     receives the current rating of rated players
+     * @param gamesPlayed receives the rated games count of each player
+     */
+    private void lockPlayers(List<ChessGameResult> results, LongIntHashMap ratings, LongIntHashMap gamesPlayed) {
+        SortedSet<Long> playerIds = new TreeSet<>();
+
+        for (ChessGameResult result : results) {
+            playerIds.add(result.getWhitePlayerId());
+            playerIds.add(result.getBlackPlayerId());
+        }
+
+        for (List<Long> batch : Lists.partition(new ArrayList<>(playerIds), LOCK_BATCH_SIZE)) {
+            for (Player player : playerRepository.findAllForUpdate(batch)) {
+                Integer rating = player.getEloRating();
+                Integer games = player.getGamesPlayed();
+
+                // Players rated by previous releases get their current rating from the rating history
+                if (games == null) {
+                    EloRating latest = eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(player.getId());
+                    rating = latest == null ? null : latest.getEloRating();
+                    games = (int) eloRatingRepository.countByPlayerId(player.getId());
+                }
+
+                if (rating != null) {
+                    ratings.put(player.getId(), rating);
+                }
+
+                gamesPlayed.put(player.getId(), games);
+            }
+        }
+    }
+
+    private double getWhiteScore(ChessGameResult result) {
+        switch (result.getStatus()) {
+            case WHITEWON:
+                return 1.0;
+            case BLACKWON:
+                return 0.0;
+            case PAT:
+                return 0.5;
+            default:
+                throw new IllegalStateException("Game " + result.getId() + " is still open");
+        }
+    }
+}
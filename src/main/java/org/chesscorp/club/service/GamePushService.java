@@ -0,0 +1,34 @@
+package org.chesscorp.club.service;
+
+import org.chesscorp.club.model.game.ChessGame;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Push game updates to connected clients as server-sent events.
+ */
+public interface GamePushService {
+
+    /**
+     * Open a channel receiving the updates of a game.
+     *
+     * @param gameId the game identifier
+     * @return the event emitter to be returned by the controller
+     */
+    SseEmitter watchGame(Number gameId);
+
+    /**
+     * Open a channel receiving the updates of all games of a player.
+     *
+     * @param playerId the player identifier
+     * @return the event emitter to be returned by the controller
+     */
+    SseEmitter watchPlayer(Number playerId);
+
+    /**
+     * Send a game to all its watchers and to the watchers of both its players. If a transaction is active, the
+     * update is sent once it has been committed.
+     *
+     * @param game the updated game
+     */
+    void publish(ChessGame game);
+}
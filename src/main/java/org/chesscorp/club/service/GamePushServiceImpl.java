@@ -0,0 +1,129 @@
+package org.chesscorp.club.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.chesscorp.club.exception.ChessClubException;
+import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keep track of the open event channels, per game and per player. Updates are serialized once and the same
+ * payload is sent to every watcher.
+ */
+@Component
+public class GamePushServiceImpl implements GamePushService {
+    private Logger logger = LoggerFactory.getLogger(GamePushServiceImpl.class);
+
+    private ObjectMapper objectMapper;
+    private PerformanceMonitor performanceMonitor;
+    private long timeout;
+
+    private Map<Long, List<SseEmitter>> gameWatchers = new ConcurrentHashMap<>();
+    private Map<Long, List<SseEmitter>> playerWatchers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GamePushServiceImpl(ObjectMapper objectMapper, PerformanceMonitor performanceMonitor,
+                               @Value("${chesscorp.push.timeout:600000}") long timeout) {
+        this.objectMapper = objectMapper;
+        this.performanceMonitor = performanceMonitor;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public SseEmitter watchGame(Number gameId) {
+        return watch(gameWatchers, gameId.longValue());
+    }
+
+    @Override
+    public SseEmitter watchPlayer(Number playerId) {
+        return watch(playerWatchers, playerId.longValue());
+    }
+
+    @Override
+    public void publish(ChessGame game) {
+        String payload;
+
+        try {
+            payload = objectMapper.writeValueAsString(game);
+        } catch (JsonProcessingException e) {
+            throw new ChessClubException("Could not serialize game " + game.getId(), e);
+        }
+
+        Long gameId = game.getId();
+        Long whitePlayerId = game.getWhitePlayer().getId();
+        Long blackPlayerId = game.getBlackPlayer().getId();
+
+        Runnable fanOut = () -> {
+            send(gameWatchers, gameId, payload);
+            send(playerWatchers, whitePlayerId, payload);
+            send(playerWatchers, blackPlayerId, payload);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    fanOut.run();
+                }
+            });
+        } else {
+            fanOut.run();
+        }
+    }
+
+    private SseEmitter watch(Map<Long, List<SseEmitter>> watchers, Long key) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        watchers.compute(key, (k, emitters) -> {
+            List<SseEmitter> updated = emitters == null ? new CopyOnWriteArrayList<>() : emitters;
+            updated.add(emitter);
+            return updated;
+        });
+
+        Runnable release = () -> release(watchers, key, emitter);
+        emitter.onCompletion(release);
+        emitter.onTimeout(release);
+
+        return emitter;
+    }
+
+    private void release(Map<Long, List<SseEmitter>> watchers, Long key, SseEmitter emitter) {
+        watchers.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private void send(Map<Long, List<SseEmitter>> watchers, Long key, String payload) {
+        List<SseEmitter> emitters = watchers.get(key);
+
+        if (emitters == null) {
+            return;
+        }
+
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("game").data(payload, MediaType.APPLICATION_JSON));
+                performanceMonitor.increment("GamePushService", "sent");
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping watcher on {}: {}", key, e.getMessage());
+                release(watchers, key, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
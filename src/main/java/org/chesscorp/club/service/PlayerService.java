@@ -37,6 +37,22 @@ public interface PlayerService {
      */
     PlayerProfile getProfile(Long playerId);
 
+    /**
+     * Get a version of the player profile. It changes whenever a game of the player ends, rated or not, and whenever
+     * a new rating is recorded.
+     *
+     * @param playerId a player ID
+     * @return the identifier of the latest rating of the player, 0 if not rated yet, and the number of ended games
+     */
+    String getProfileVersion(Long playerId);
+
+    /**
+     * Check the current rating stored on each player against the rating history, and fix mismatches.
+     *
+     * @return the number of players fixed
+     */
+    long checkRatings();
+
     /**
      * Get suggested opponents.
      *
@@ -70,6 +70,39 @@ public class PlayerServiceImpl implements PlayerService {
         return result;
     }
 
+    @Override
+    @Transactional
+    public long checkRatings() {
+        return playerRepository.streamAllPlayers()
+                .filter(player -> {
+                    EloRating latest = eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(player.getId());
+                    Integer rating = latest == null ? null : latest.getEloRating();
+                    int gamesPlayed = (int) eloRatingRepository.countByPlayerId(player.getId());
+
+                    if (Objects.equals(rating, player.getEloRating())
+                            && Objects.equals(gamesPlayed, player.getGamesPlayed())) {
+                        return false;
+                    }
+
+                    logger.debug("Player {} rating {} ({} games) fixed to {} ({} games)", player.getId(),
+                            player.getEloRating(), player.getGamesPlayed(), rating, gamesPlayed);
+                    player.setRating(rating, gamesPlayed);
+                    playerRepository.save(player);
+                    return true;
+                })
+                .count();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getProfileVersion(Long playerId) {
+        Long latestRatingId = eloRatingRepository.findLatestIdByPlayerId(playerId);
+
+        // Imported games and games resigned early are not rated but still appear in the statistics
+        long endedGames = chessGameRepository.countEndedGamesByPlayerId(playerId);
+        return (latestRatingId == null ? 0 : latestRatingId) + "-" + endedGames;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PlayerProfile getProfile(Long playerId) {
@@ -1,5 +1,6 @@
 package org.chesscorp.club.service.factories;
 
+import org.chesscorp.club.dto.ExternalPlayerReference;
 import org.chesscorp.club.model.people.ExternalPlayer;
 
 /**
@@ -9,10 +10,19 @@ public interface PlayerFactory {
 
     /**
      * Find a player based on its display name. It there is no matching player, a new instance is created on the fly.
-     * Note that the player will already be persisted on returning and have a valid ID.
+     * Note that the player will already be persisted on returning and have a valid ID. The player is a reference
+     * bound to the current persistence context, loaded on first access to its state.
      *
      * @param displayName the display name of the searched player
      * @return an existing player information or a newly created instance.
      */
     ExternalPlayer findOrCreateExternalPlayer(String displayName);
+
+    /**
+     * Find or create a player like {@link #findOrCreateExternalPlayer(String)}, without loading the player entity.
+     *
+     * @param displayName the display name of the searched player
+     * @return the identity of the player
+     */
+    ExternalPlayerReference findOrCreateExternalPlayerReference(String displayName);
 }
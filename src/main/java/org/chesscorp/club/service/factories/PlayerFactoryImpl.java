@@ -1,44 +1,190 @@
 package org.chesscorp.club.service.factories;
 
+import org.chesscorp.club.config.CacheConfig;
+import org.chesscorp.club.dto.ExternalPlayerReference;
 import org.chesscorp.club.model.people.ExternalPlayer;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
 import org.chesscorp.club.persistence.PlayerRepository;
 import org.chesscorp.club.utilities.normalize.TextNormalizer;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Access the player repository and create new instances on demand.
+ * <p>
+ * Player identities are cached by display name, first for the current transaction and then, once it is committed,
+ * for the whole process. Players found or created by a rolled back transaction are never cached, and deleted players
+ * are evicted. Entities are never cached, callers get references bound to their own persistence context.
+ * </p>
  */
 @Component
 public class PlayerFactoryImpl implements PlayerFactory {
+    private static final String COMPONENT = "PlayerFactory";
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     private PlayerRepository playerRepository;
     private TextNormalizer textNormalizer;
+    private PerformanceMonitor performanceMonitor;
+    private Cache<String, ExternalPlayerReference> cache;
 
     @Autowired
-    public PlayerFactoryImpl(PlayerRepository playerRepository, TextNormalizer textNormalizer) {
+    public PlayerFactoryImpl(PlayerRepository playerRepository, TextNormalizer textNormalizer,
+                             CacheManager ehcacheManager, PerformanceMonitor performanceMonitor,
+                             EntityManagerFactory entityManagerFactory) {
         this.playerRepository = playerRepository;
         this.textNormalizer = textNormalizer;
+        this.performanceMonitor = performanceMonitor;
+        this.cache = ehcacheManager.getCache(CacheConfig.EXTERNAL_PLAYERS_CACHE,
+                String.class, ExternalPlayerReference.class);
+
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_DELETE, new DeletedPlayerListener());
     }
 
     @Override
     @Transactional
     public ExternalPlayer findOrCreateExternalPlayer(String displayName) {
+        return entityManager.getReference(ExternalPlayer.class,
+                findOrCreateExternalPlayerReference(displayName).getId());
+    }
+
+    @Override
+    @Transactional
+    public ExternalPlayerReference findOrCreateExternalPlayerReference(String displayName) {
         int columnIndex = displayName.indexOf(':');
 
         if (columnIndex > 0) {
             displayName = displayName.substring(0, columnIndex);
         }
 
+        ExternalPlayerReference player = cache.get(displayName);
+        Map<String, ExternalPlayerReference> transactionPlayers = getTransactionPlayers();
+
+        if (player == null && transactionPlayers != null) {
+            player = transactionPlayers.get(displayName);
+        }
+
+        if (player != null) {
+            performanceMonitor.increment(COMPONENT, "hit");
+            return player;
+        }
+
+        performanceMonitor.increment(COMPONENT, "miss");
+
         String normalizedName = textNormalizer.normalize(displayName);
-        ExternalPlayer player = playerRepository.findOneByNormalizedName(normalizedName);
+        ExternalPlayer externalPlayer = playerRepository.findOneByNormalizedName(normalizedName);
 
-        if (player == null) {
-            player = playerRepository.save(new ExternalPlayer(displayName, normalizedName));
+        if (externalPlayer == null) {
+            externalPlayer = playerRepository.save(new ExternalPlayer(displayName, normalizedName));
+        }
+
+        player = new ExternalPlayerReference(externalPlayer.getId(), externalPlayer.getNormalizedName());
+
+        if (transactionPlayers != null) {
+            transactionPlayers.put(displayName, player);
+        } else {
+            cache.putIfAbsent(displayName, player);
         }
 
         return player;
     }
+
+    /**
+     * Get the players resolved by the current transaction, published to the cache on commit.
+     *
+     * @return the players by display name, or null if there is no active transaction
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, ExternalPlayerReference> getTransactionPlayers() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Map<String, ExternalPlayerReference> transactionPlayers =
+                (Map<String, ExternalPlayerReference>) TransactionSynchronizationManager.getResource(this);
+
+        if (transactionPlayers == null) {
+            Map<String, ExternalPlayerReference> players = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, players);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(PlayerFactoryImpl.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(PlayerFactoryImpl.this, players);
+                }
+
+                @Override
+                public void afterCommit() {
+                    // Keep the first published identity if a concurrent transaction resolved the same name
+                    players.forEach(cache::putIfAbsent);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PlayerFactoryImpl.this);
+                }
+            });
+            transactionPlayers = players;
+        }
+
+        return transactionPlayers;
+    }
+
+    /**
+     * Evict the cached identities of a player, whatever the display name they were found by.
+     *
+     * @param playerId the player identifier
+     */
+    private void evict(long playerId) {
+        List<String> displayNames = new ArrayList<>();
+        cache.forEach(entry -> {
+            if (entry.getValue().getId() == playerId) {
+                displayNames.add(entry.getKey());
+            }
+        });
+        displayNames.forEach(cache::remove);
+    }
+
+    /**
+     * Evict players as soon as they are deleted. If the deletion is rolled back, the player is just looked up again.
+     */
+    private class DeletedPlayerListener implements PostDeleteEventListener {
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof ExternalPlayer) {
+                evict(((Number) event.getId()).longValue());
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return false;
+        }
+    }
 }
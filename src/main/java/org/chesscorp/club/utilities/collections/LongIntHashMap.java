@@ -0,0 +1,119 @@
+package org.chesscorp.club.utilities.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long keys to int values, without boxing. Used by batch jobs keeping one value per
+ * entity identifier in memory.
+ */
+public class LongIntHashMap {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final double LOAD_FACTOR = 0.5;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Get the value associated to a key.
+     *
+     * @param key          the key
+     * @param defaultValue the value returned if the key is not present
+     * @return the associated value or the default value
+     */
+    public int get(long key, int defaultValue) {
+        int slot = findSlot(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return used[findSlot(key)];
+    }
+
+    public void put(long key, int value) {
+        int slot = findSlot(key);
+
+        if (!used[slot]) {
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                resize();
+                slot = findSlot(key);
+            }
+
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+
+        values[slot] = value;
+    }
+
+    /**
+     * Add a delta to the value associated to a key.
+     *
+     * @param key          the key
+     * @param delta        value to add
+     * @param defaultValue the initial value if the key is not present
+     * @return the updated value
+     */
+    public int add(long key, int delta, int defaultValue) {
+        int value = get(key, defaultValue) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
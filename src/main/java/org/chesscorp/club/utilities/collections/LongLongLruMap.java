@@ -0,0 +1,200 @@
+package org.chesscorp.club.utilities.collections;
+
+import java.util.Arrays;
+
+/**
+ * Bounded open addressing map from long keys to long values, without boxing. Once the maximum size is reached, the
+ * least recently used entry is evicted. As in {@link MappedLongLongTable}, each entry holds a check word that lookups
+ * must match. Entries are chained in access order through slot indexes, and removals use backward shift deletion so
+ * that no tombstone is left in the table. Not thread safe.
+ */
+public class LongLongLruMap {
+    private static final int NONE = -1;
+
+    private final int maxSize;
+    private final long[] keys;
+    private final long[] checks;
+    private final long[] values;
+    private final boolean[] used;
+    private final int[] before;
+    private final int[] after;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+
+    public LongLongLruMap(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, maxSize * 2) - 1) << 1;
+        this.maxSize = maxSize;
+        keys = new long[capacity];
+        checks = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+    }
+
+    /**
+     * Get the value associated to a key, marking the entry as recently used.
+     *
+     * @param key          the key
+     * @param check        the check stored with the key
+     * @param defaultValue the value returned if the key is not present or has another check
+     * @return the associated value or the default value
+     */
+    public long get(long key, long check, long defaultValue) {
+        int slot = findSlot(key);
+
+        if (!used[slot] || checks[slot] != check) {
+            return defaultValue;
+        }
+
+        moveToTail(slot);
+        return values[slot];
+    }
+
+    /**
+     * Associate a value to a key, replacing the check and value of an existing key and evicting the least recently
+     * used entry if the map is full.
+     *
+     * @param key   the key
+     * @param check the check that lookups must match
+     * @param value the value
+     */
+    public void put(long key, long check, long value) {
+        int slot = findSlot(key);
+
+        if (used[slot]) {
+            checks[slot] = check;
+            values[slot] = value;
+            moveToTail(slot);
+            return;
+        }
+
+        if (size == maxSize) {
+            removeSlot(head);
+            slot = findSlot(key);
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        checks[slot] = check;
+        values[slot] = value;
+        linkLast(slot);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        unlink(slot);
+        used[slot] = false;
+        size--;
+
+        int hole = slot;
+        int next = (slot + 1) & mask;
+
+        while (used[next]) {
+            int ideal = mix(keys[next]) & mask;
+
+            // The entry may fill the hole unless its probe sequence starts after the hole
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                moveSlot(next, hole);
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void moveSlot(int from, int to) {
+        keys[to] = keys[from];
+        checks[to] = checks[from];
+        values[to] = values[from];
+        used[to] = true;
+        used[from] = false;
+
+        int previous = before[from];
+        int following = after[from];
+        before[to] = previous;
+        after[to] = following;
+
+        if (previous == NONE) {
+            head = to;
+        } else {
+            after[previous] = to;
+        }
+
+        if (following == NONE) {
+            tail = to;
+        } else {
+            before[following] = to;
+        }
+    }
+
+    private void moveToTail(int slot) {
+        if (slot != tail) {
+            unlink(slot);
+            linkLast(slot);
+        }
+    }
+
+    private void unlink(int slot) {
+        int previous = before[slot];
+        int following = after[slot];
+
+        if (previous == NONE) {
+            head = following;
+        } else {
+            after[previous] = following;
+        }
+
+        if (following == NONE) {
+            tail = previous;
+        } else {
+            before[following] = previous;
+        }
+    }
+
+    private void linkLast(int slot) {
+        before[slot] = tail;
+        after[slot] = NONE;
+
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            after[tail] = slot;
+        }
+
+        tail = slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
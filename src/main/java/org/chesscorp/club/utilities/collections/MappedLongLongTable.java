@@ -0,0 +1,229 @@
+package org.chesscorp.club.utilities.collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed capacity open addressing table from long keys to positive long values, stored in a memory mapped file so
+ * that it neither weighs on the garbage collector nor starts empty after a restart. Each entry also holds a check
+ * word that lookups must match, so that keys standing for a larger identity, such as hashes, can be verified without
+ * leaving the table. Slots are 24 bytes long, the key, the check and the value, and a zero value marks an empty slot.
+ * Once the table is three quarters full, new keys are rejected. Not thread safe.
+ */
+public class MappedLongLongTable implements Closeable {
+    private static final long MAGIC = 0x43_43_4C_4C_54_42_4C_32L;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 24;
+    private static final int CHECK_OFFSET = 8;
+    private static final int VALUE_OFFSET = 16;
+    private static final int SEGMENT_SHIFT = 23;
+    private static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long capacity;
+    private final long maxSize;
+    private long size;
+    private long maxValue;
+
+    /**
+     * Open a table file, creating it if it does not exist or if it was created with another capacity or layout.
+     *
+     * @param file     the table file
+     * @param capacity the number of slots, rounded up to a power of two
+     * @throws IOException if the file can't be mapped
+     */
+    public MappedLongLongTable(Path file, long capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = Math.max(16, Long.highestOneBit(capacity - 1) << 1);
+        this.maxSize = this.capacity / 4 * 3;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        int segmentCount = (int) ((this.capacity + SEGMENT_SLOTS - 1) >> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            long segmentSlots = Math.min(SEGMENT_SLOTS, this.capacity - ((long) i << SEGMENT_SHIFT));
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + ((long) i << SEGMENT_SHIFT) * SLOT_SIZE, segmentSlots * SLOT_SIZE);
+        }
+
+        if (header.getLong(0) == MAGIC && header.getLong(8) == this.capacity) {
+            size = header.getLong(16);
+            maxValue = header.getLong(24);
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Get the value associated to a key.
+     *
+     * @param key          the key
+     * @param check        the check stored with the key
+     * @param defaultValue the value returned if the key is not present or has another check
+     * @return the associated value or the default value
+     */
+    public long get(long key, long check, long defaultValue) {
+        long slot = findSlot(key);
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        long value = segment.getLong(offset + VALUE_OFFSET);
+        return value == 0 || segment.getLong(offset + CHECK_OFFSET) != check ? defaultValue : value;
+    }
+
+    /**
+     * Associate a value to a key, replacing the check and value of an existing key.
+     *
+     * @param key   the key
+     * @param check the check that lookups must match
+     * @param value the value, strictly positive
+     * @return false if the key is new and the table is full
+     */
+    public boolean put(long key, long check, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Values must be positive: " + value);
+        }
+
+        long slot = findSlot(key);
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+
+        if (segment.getLong(offset + VALUE_OFFSET) == 0) {
+            if (size >= maxSize) {
+                return false;
+            }
+
+            segment.putLong(offset, key);
+            header.putLong(16, ++size);
+        }
+
+        segment.putLong(offset + CHECK_OFFSET, check);
+        segment.putLong(offset + VALUE_OFFSET, value);
+
+        if (value > maxValue) {
+            maxValue = value;
+            header.putLong(24, maxValue);
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        byte[] zeros = new byte[SLOT_SIZE * 4096];
+
+        for (MappedByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += zeros.length) {
+                segment.position(offset);
+                segment.put(zeros, 0, Math.min(zeros.length, segment.capacity() - offset));
+            }
+            segment.position(0);
+        }
+
+        size = 0;
+        maxValue = 0;
+        header.putLong(0, MAGIC);
+        header.putLong(8, capacity);
+        header.putLong(16, size);
+        header.putLong(24, maxValue);
+    }
+
+    /**
+     * Visit entries in slot order, which is unrelated to insertion order.
+     *
+     * @param visitor the visitor, returning false to stop
+     */
+    public void forEach(EntryVisitor visitor) {
+        for (long slot = 0; slot < capacity; slot++) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            long value = segment.getLong(offset + VALUE_OFFSET);
+
+            if (value != 0 && !visitor.visit(segment.getLong(offset), segment.getLong(offset + CHECK_OFFSET), value)) {
+                return;
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Highest value stored since the table was created or cleared.
+     *
+     * @return the highest value, 0 if the table is empty
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Write pending changes to the file.
+     */
+    public void force() {
+        header.force();
+
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private long findSlot(long key) {
+        long mask = capacity - 1;
+        long slot = mix(key) & mask;
+
+        while (true) {
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+
+            if (segment.getLong(offset + VALUE_OFFSET) == 0 || segment.getLong(offset) == key) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private ByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_SIZE;
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        boolean visit(long key, long check, long value);
+    }
+}
@@ -0,0 +1,49 @@
+package org.chesscorp.club.utilities.hash;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Content fingerprint of a game, used to detect games imported twice.
+ */
+public final class GameFingerprint {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private GameFingerprint() {
+    }
+
+    /**
+     * Compute the SHA-256 hash of the game content.
+     *
+     * @param whitePlayerName normalized name of the white player
+     * @param blackPlayerName normalized name of the black player
+     * @param startDate       game start date, compared as an instant
+     * @param status          game result
+     * @param pgnMoves        game moves
+     * @return the fingerprint as 64 hexadecimal digits
+     */
+    public static String compute(String whitePlayerName, String blackPlayerName, OffsetDateTime startDate,
+                                 ChessGameStatus status, List<String> pgnMoves) {
+        String content = whitePlayerName + '\n' + blackPlayerName + '\n' + startDate.toInstant().toEpochMilli()
+                + '\n' + status + '\n' + String.join(" ", pgnMoves);
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported ?!?!", e);
+        }
+    }
+}
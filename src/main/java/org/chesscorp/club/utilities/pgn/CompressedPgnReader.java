@@ -0,0 +1,119 @@
+package org.chesscorp.club.utilities.pgn;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * PGN reader decompressing gzip, bzip2 or zip files on the fly, without any temporary file. Zip archives may bundle
+ * several PGN files, read in archive order. Not thread safe.
+ */
+public class CompressedPgnReader implements PgnGameReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream fileStream;
+    private final ZipInputStream zipStream;
+    private PgnBookReader bookReader;
+
+    /**
+     * Open a compressed PGN file.
+     *
+     * @param file the compressed file, its format being guessed from its extension
+     * @throws IOException if the file can't be opened
+     */
+    public CompressedPgnReader(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (!isCompressed(name)) {
+            throw new IllegalArgumentException("Unsupported compression format: " + file);
+        }
+
+        this.fileStream = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+
+        try {
+            if (name.endsWith(".zip")) {
+                this.zipStream = new ZipInputStream(fileStream);
+            } else {
+                this.zipStream = null;
+                this.bookReader = new PgnBookReader(name.endsWith(".gz")
+                        ? new GZIPInputStream(fileStream, BUFFER_SIZE)
+                        : new BZip2CompressorInputStream(fileStream, true));
+            }
+        } catch (IOException e) {
+            fileStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check whether a file can be read by this reader.
+     *
+     * @param fileName the file name
+     * @return true if the file extension is a supported compression format
+     */
+    public static boolean isCompressed(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".gz") || name.endsWith(".bz2") || name.endsWith(".zip");
+    }
+
+    @Override
+    public PgnGameModel readGame() throws IOException {
+        while (true) {
+            if (bookReader == null && !nextZipEntry()) {
+                return null;
+            }
+
+            PgnGameModel pgnGameModel = bookReader.readGame();
+
+            if (pgnGameModel != null || zipStream == null) {
+                return pgnGameModel;
+            }
+
+            bookReader = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileStream.close();
+    }
+
+    /**
+     * Move to the next PGN file of the zip archive.
+     *
+     * @return false if the archive has no more PGN files
+     */
+    private boolean nextZipEntry() throws IOException {
+        if (zipStream == null) {
+            return false;
+        }
+
+        ZipEntry entry;
+        do {
+            entry = zipStream.getNextEntry();
+        } while (entry != null && (entry.isDirectory() || !entry.getName().toLowerCase(Locale.ROOT).endsWith(".pgn")));
+
+        if (entry == null) {
+            return false;
+        }
+
+        // The archive stream ends with each entry, it must not be closed with it
+        bookReader = new PgnBookReader(new FilterInputStream(zipStream) {
+            @Override
+            public void close() {
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,216 @@
+package org.chesscorp.club.utilities.pgn;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PGN file reader parsing several parts of the file at once. The file is cut into memory mapped chunks of roughly
+ * the same size, ending where a line starts with an Event tag, and chunks are parsed in parallel. Games are still
+ * returned in file order. Not thread safe.
+ */
+public class MappedPgnReader implements PgnGameReader {
+    private static final byte[] GAME_START = "[Event ".getBytes(StandardCharsets.US_ASCII);
+    private static final int SEARCH_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long chunkSize;
+    private final int maxPendingChunks;
+    private final ExecutorService executor;
+    private final Deque<Future<List<PgnGameModel>>> pendingChunks = new ArrayDeque<>();
+    private long nextChunkStart = 0;
+    private Iterator<PgnGameModel> chunkGames = Collections.emptyIterator();
+
+    /**
+     * Open a PGN file.
+     *
+     * @param file        the PGN file
+     * @param parallelism number of chunks parsed at the same time
+     * @param chunkSize   approximate size of chunks in bytes
+     * @throws IOException if the file can't be opened
+     */
+    public MappedPgnReader(Path file, int parallelism, int chunkSize) throws IOException {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = parallelism * 2;
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * Read the next game.
+     *
+     * @return the next game in file order, or null at the end of the file
+     * @throws IOException if the file can't be read or parsed
+     */
+    @Override
+    public PgnGameModel readGame() throws IOException {
+        while (!chunkGames.hasNext()) {
+            submitChunks();
+            Future<List<PgnGameModel>> chunk = pendingChunks.poll();
+
+            if (chunk == null) {
+                return null;
+            }
+
+            chunkGames = waitFor(chunk).iterator();
+        }
+
+        return chunkGames.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        channel.close();
+    }
+
+    private void submitChunks() throws IOException {
+        while (pendingChunks.size() < maxPendingChunks && nextChunkStart < fileSize) {
+            long chunkEnd = findGameStart(Math.min(fileSize, nextChunkStart + chunkSize));
+
+            if (chunkEnd - nextChunkStart > Integer.MAX_VALUE) {
+                throw new IOException("No game start found after offset " + nextChunkStart);
+            }
+
+            ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, nextChunkStart, chunkEnd - nextChunkStart);
+            pendingChunks.add(executor.submit(() -> parseChunk(chunk)));
+            nextChunkStart = chunkEnd;
+        }
+    }
+
+    /**
+     * Find the first line starting with an Event tag.
+     *
+     * @param from the offset where the search starts
+     * @return the offset of the line, or the file size if there is none
+     */
+    private long findGameStart(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+        // Start one byte earlier to check the line break preceding the tag
+        long bufferStart = from - 1;
+
+        while (bufferStart + GAME_START.length < fileSize) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer, bufferStart + buffer.position());
+            } while (read > 0 && buffer.hasRemaining());
+            buffer.flip();
+
+            for (int i = 0; i + 1 + GAME_START.length <= buffer.limit(); i++) {
+                if (buffer.get(i) == '\n' && startsWithGame(buffer, i + 1)) {
+                    return bufferStart + i + 1;
+                }
+            }
+
+            if (bufferStart + buffer.limit() >= fileSize) {
+                break;
+            }
+
+            // Overlap buffers so that a tag across their boundary is not missed
+            bufferStart += buffer.limit() - GAME_START.length - 1;
+        }
+
+        return fileSize;
+    }
+
+    private static boolean startsWithGame(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < GAME_START.length; i++) {
+            if (buffer.get(offset + i) != GAME_START[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List<PgnGameModel> parseChunk(ByteBuffer chunk) throws IOException {
+        List<PgnGameModel> games = new ArrayList<>();
+        PgnBookReader bookReader = new PgnBookReader(new ByteBufferInputStream(chunk));
+        PgnGameModel pgnGameModel;
+
+        while ((pgnGameModel = bookReader.readGame()) != null) {
+            games.add(pgnGameModel);
+        }
+
+        return games;
+    }
+
+    private static List<PgnGameModel> waitFor(Future<List<PgnGameModel>> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing games", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IOException("Failed to parse games", e.getCause());
+        }
+    }
+
+    /**
+     * Input stream over a byte buffer, reading from its position to its limit.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
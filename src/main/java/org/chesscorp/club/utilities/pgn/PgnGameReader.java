@@ -0,0 +1,20 @@
+package org.chesscorp.club.utilities.pgn;
+
+import org.alcibiade.chess.persistence.PgnGameModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequential access to the games of a PGN source.
+ */
+public interface PgnGameReader extends Closeable {
+
+    /**
+     * Read the next game.
+     *
+     * @return the next game, or null once all games have been read
+     * @throws IOException if the source can't be read or parsed
+     */
+    PgnGameModel readGame() throws IOException;
+}
@@ -0,0 +1,147 @@
+package org.chesscorp.club.utilities.position;
+
+/**
+ * Packed binary form of positions in the fixed marshaller layout. The board is stored as a 64-bit occupancy
+ * bitboard followed by one nibble per occupied square, after two bytes holding the side to move, castling rights and
+ * en passant file. A full board takes 26 bytes instead of 70 characters, and the conversion is lossless.
+ */
+public final class PositionCodec {
+    public static final int MAX_LENGTH = 26;
+
+    private static final int TEXT_LENGTH = 70;
+    private static final int BOARD_OFFSET = 1;
+    private static final int CASTLING_OFFSET = 65;
+    private static final int EN_PASSANT_OFFSET = 69;
+    private static final int SQUARES = 64;
+    private static final int MAX_PIECES = 32;
+    private static final int NO_EN_PASSANT = 8;
+    private static final char EMPTY = '-';
+    private static final String PIECES = "PNBRQKpnbrqk";
+    private static final String CASTLING = "KQkq";
+    private static final String FILES = "abcdefgh";
+
+    private PositionCodec() {
+    }
+
+    /**
+     * Check whether a text follows the fixed layout and can be packed.
+     *
+     * @param positionText the position in fixed marshaller format
+     * @return true if encode will succeed
+     */
+    public static boolean canEncode(String positionText) {
+        if (positionText == null || positionText.length() != TEXT_LENGTH) {
+            return false;
+        }
+
+        char side = positionText.charAt(0);
+        if (side != 'w' && side != 'b') {
+            return false;
+        }
+
+        int pieceCount = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            char c = positionText.charAt(BOARD_OFFSET + square);
+            if (c != EMPTY) {
+                if (PIECES.indexOf(c) < 0 || ++pieceCount > MAX_PIECES) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = 0; i < CASTLING.length(); i++) {
+            char c = positionText.charAt(CASTLING_OFFSET + i);
+            if (c != EMPTY && c != CASTLING.charAt(i)) {
+                return false;
+            }
+        }
+
+        char enPassant = positionText.charAt(EN_PASSANT_OFFSET);
+        return enPassant == EMPTY || FILES.indexOf(enPassant) >= 0;
+    }
+
+    /**
+     * Pack a position.
+     *
+     * @param positionText the position in fixed marshaller format
+     * @return the packed position, at most MAX_LENGTH bytes long
+     */
+    public static byte[] encode(String positionText) {
+        if (!canEncode(positionText)) {
+            throw new IllegalArgumentException("Not a fixed format position: " + positionText);
+        }
+
+        long occupancy = 0;
+        int pieceCount = 0;
+        int[] pieces = new int[SQUARES];
+
+        for (int square = 0; square < SQUARES; square++) {
+            char c = positionText.charAt(BOARD_OFFSET + square);
+            if (c != EMPTY) {
+                occupancy |= 1L << square;
+                pieces[pieceCount++] = PIECES.indexOf(c);
+            }
+        }
+
+        int flags = positionText.charAt(0) == 'b' ? 1 : 0;
+        for (int i = 0; i < CASTLING.length(); i++) {
+            if (positionText.charAt(CASTLING_OFFSET + i) != EMPTY) {
+                flags |= 1 << (1 + i);
+            }
+        }
+
+        char enPassant = positionText.charAt(EN_PASSANT_OFFSET);
+        flags |= (enPassant == EMPTY ? NO_EN_PASSANT : FILES.indexOf(enPassant)) << 5;
+
+        byte[] packed = new byte[10 + (pieceCount + 1) / 2];
+        for (int i = 0; i < 8; i++) {
+            packed[i] = (byte) (occupancy >>> (56 - 8 * i));
+        }
+        packed[8] = (byte) (flags >>> 8);
+        packed[9] = (byte) flags;
+
+        for (int i = 0; i < pieceCount; i++) {
+            packed[10 + i / 2] |= (byte) (i % 2 == 0 ? pieces[i] << 4 : pieces[i]);
+        }
+
+        return packed;
+    }
+
+    /**
+     * Unpack a position.
+     *
+     * @param packed a position packed by encode
+     * @return the position in fixed marshaller format
+     */
+    public static String decode(byte[] packed) {
+        long occupancy = 0;
+        for (int i = 0; i < 8; i++) {
+            occupancy = (occupancy << 8) | (packed[i] & 0xFF);
+        }
+        int flags = ((packed[8] & 0xFF) << 8) | (packed[9] & 0xFF);
+
+        StringBuilder text = new StringBuilder(TEXT_LENGTH);
+        text.append((flags & 1) != 0 ? 'b' : 'w');
+
+        int pieceIndex = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            if ((occupancy & (1L << square)) == 0) {
+                text.append(EMPTY);
+            } else {
+                int b = packed[10 + pieceIndex / 2] & 0xFF;
+                int piece = pieceIndex % 2 == 0 ? b >>> 4 : b & 0x0F;
+                text.append(PIECES.charAt(piece));
+                pieceIndex++;
+            }
+        }
+
+        for (int i = 0; i < CASTLING.length(); i++) {
+            text.append((flags & (1 << (1 + i))) != 0 ? CASTLING.charAt(i) : EMPTY);
+        }
+
+        int enPassant = (flags >>> 5) & 0x0F;
+        text.append(enPassant == NO_EN_PASSANT ? EMPTY : FILES.charAt(enPassant));
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package org.chesscorp.club.utilities.position;
+
+import java.util.Random;
+
+/**
+ * 64-bit Zobrist hash of positions in the fixed marshaller layout: side to move, the 64 squares, castling rights
+ * and en passant file, one character each. Every (offset, symbol) pair gets a random key and the hash is the XOR of
+ * the keys of all non-empty characters, so that a move can update it by toggling the few characters it changes.
+ * Keys are drawn from a fixed seed and must never change, as hashes are persisted.
+ * <p>
+ * A second hash drawn from another seed is independent from the first one. Stored next to it, it tells distinct
+ * positions sharing a hash apart without comparing their text.
+ * </p>
+ */
+public final class ZobristHash {
+    public static final int POSITION_LENGTH = 70;
+    private static final char EMPTY = '-';
+    private static final int SYMBOLS = 128;
+    private static final long SEED = 0x5A0B_2157_C4E5_5L;
+    private static final long CHECK_SEED = 0x3C8E_7D09_A61F_3L;
+    private static final long[] KEYS = keys(SEED);
+    private static final long[] CHECK_KEYS = keys(CHECK_SEED);
+
+    private ZobristHash() {
+    }
+
+    /**
+     * Compute the hash of a position from scratch.
+     *
+     * @param positionText the position in fixed marshaller format
+     * @return the position hash
+     */
+    public static long hash(String positionText) {
+        return hash(KEYS, positionText);
+    }
+
+    /**
+     * Compute the check hash of a position, independent from its hash.
+     *
+     * @param positionText the position in fixed marshaller format
+     * @return the position check hash
+     */
+    public static long check(String positionText) {
+        return hash(CHECK_KEYS, positionText);
+    }
+
+    /**
+     * Update a hash for a single changed character, such as a square being emptied or occupied.
+     *
+     * @param hash     the hash before the change
+     * @param offset   the character offset in the fixed format
+     * @param previous the previous character at this offset
+     * @param next     the new character at this offset
+     * @return the hash after the change
+     */
+    public static long update(long hash, int offset, char previous, char next) {
+        return hash ^ key(offset, previous) ^ key(offset, next);
+    }
+
+    private static long hash(long[] keys, String positionText) {
+        long hash = 0;
+        int length = Math.min(positionText.length(), POSITION_LENGTH);
+
+        for (int offset = 0; offset < length; offset++) {
+            hash ^= key(keys, offset, positionText.charAt(offset));
+        }
+
+        return hash;
+    }
+
+    private static long key(int offset, char symbol) {
+        return key(KEYS, offset, symbol);
+    }
+
+    private static long key(long[] keys, int offset, char symbol) {
+        if (symbol == EMPTY || symbol >= SYMBOLS) {
+            return 0;
+        }
+
+        return keys[offset * SYMBOLS + symbol];
+    }
+
+    private static long[] keys(long seed) {
+        long[] keys = new long[POSITION_LENGTH * SYMBOLS];
+        Random random = new Random(seed);
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+
+        return keys;
+    }
+}
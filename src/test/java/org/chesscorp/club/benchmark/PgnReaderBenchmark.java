@@ -0,0 +1,114 @@
+package org.chesscorp.club.benchmark;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+import org.chesscorp.club.utilities.pgn.MappedPgnReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the sequential PGN reader with the memory mapped parallel reader on a file made of the sample games
+ * repeated many times. Run with the test classpath:
+ * <pre>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.chesscorp.club.benchmark.PgnReaderBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PgnReaderBenchmark {
+    private static final String[] SAMPLES = {"/samples-pgn/McDonnell.pgn", "/samples-pgn/DeLaBourdonnais.pgn"};
+
+    @Param({"100"})
+    public int repeat;
+
+    @Param({"1", "4"})
+    public int parsers;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = Files.createTempFile("benchmark", ".pgn");
+
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            for (int i = 0; i < repeat; i++) {
+                for (String sample : SAMPLES) {
+                    try (InputStream in = PgnReaderBenchmark.class.getResourceAsStream(sample)) {
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = in.read(buffer)) > 0) {
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                    out.write("\n\n".getBytes("US-ASCII"));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long sequentialReader() throws IOException {
+        long plies = 0;
+
+        try (InputStream pgnStream = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            PgnBookReader bookReader = new PgnBookReader(pgnStream);
+            PgnGameModel pgnGameModel;
+
+            while ((pgnGameModel = bookReader.readGame()) != null) {
+                plies += pgnGameModel.getMoves().size();
+            }
+        }
+
+        return plies;
+    }
+
+    @Benchmark
+    public long mappedReader() throws IOException {
+        long plies = 0;
+
+        try (MappedPgnReader reader = new MappedPgnReader(file, parsers, 1 << 20)) {
+            PgnGameModel pgnGameModel;
+
+            while ((pgnGameModel = reader.readGame()) != null) {
+                plies += pgnGameModel.getMoves().size();
+            }
+        }
+
+        return plies;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PgnReaderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
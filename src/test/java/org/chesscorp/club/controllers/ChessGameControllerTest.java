@@ -2,6 +2,7 @@ package org.chesscorp.club.controllers;
 
 import org.assertj.core.api.Assertions;
 import org.chesscorp.club.Application;
+import org.chesscorp.club.dto.ChessGameSummary;
 import org.chesscorp.club.exception.ChessClubException;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.model.game.ChessMove;
@@ -14,12 +15,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.servlet.http.Cookie;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -27,6 +34,7 @@ import java.util.List;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,6 +50,12 @@ public class ChessGameControllerTest {
     @Autowired
     private AuthenticationService authenticationService;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     public void testEmptyMvcController() throws Exception {
         MockMvc mockMvc = MockMvcBuilders.standaloneSetup(chessGameController).build();
@@ -94,11 +108,13 @@ public class ChessGameControllerTest {
         ChessGame game4 = chessGameController.postMove(bobToken, game1.getId(), "e5");
         Assertions.assertThat(game4.getMoves()).extracting(ChessMove::getPgn).containsExactly("e4", "e5");
 
-        List<ChessGame> games = chessGameController.search(alcibiade.getId(), true);
-        Assertions.assertThat(games).containsExactly(game1);
+        List<ChessGameSummary> games = chessGameController.search(alcibiade.getId(), true, null, null);
+        Assertions.assertThat(games).extracting(ChessGameSummary::getId).containsExactly(game1.getId());
+        Assertions.assertThat(games).extracting(ChessGameSummary::getMoveCount).containsExactly(2);
 
-        Assertions.assertThat(chessGameController.search(alcibiade.getId(), false)).isEmpty();
-        Assertions.assertThat(chessGameController.search(alcibiade.getId(), null)).isEqualTo(games);
+        Assertions.assertThat(chessGameController.search(alcibiade.getId(), false, null, null)).isEmpty();
+        Assertions.assertThat(chessGameController.search(alcibiade.getId(), null, null, null))
+                .extracting(ChessGameSummary::getId).containsExactly(game1.getId());
 
         /*
          * Search games from the controller itself.
@@ -113,6 +129,16 @@ public class ChessGameControllerTest {
                 jsonPath("$", hasSize(1))
         );
 
+        mockMvc.perform(
+                post("/api/chess/game/search/stream").param("playerId", alcibiade.getId().toString())
+        ).andExpect(
+                status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$", hasSize(1))
+        ).andExpect(
+                jsonPath("$[0].moveCount", Matchers.is(2))
+        );
+
         /*
          * Load games by id from the controller itself.
          */
@@ -125,6 +151,26 @@ public class ChessGameControllerTest {
                 jsonPath("$.status", Matchers.is("OPEN"))
         ).andExpect(
                 jsonPath("$.moves", hasSize(2))
+        ).andExpect(
+                header().string("ETag", "\"2-OPEN\"")
+        ).andExpect(
+                header().string("Cache-Control", "no-cache")
+        );
+
+        mockMvc.perform(
+                get("/api/chess/game/" + game1.getId()).header("If-None-Match", "\"2-OPEN\"")
+        ).andExpect(
+                status().isNotModified()
+        );
+
+        mockMvc.perform(
+                get("/api/chess/game/" + game1.getId() + "/moves")
+        ).andExpect(
+                status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$", hasSize(29))
+        ).andExpect(
+                jsonPath("$", Matchers.hasItem("Qh5"))
         );
 
         /*
@@ -201,4 +247,101 @@ public class ChessGameControllerTest {
         chessGameController.postMove(alcibiadeToken, game1.getId(), "e5");
     }
 
+    @Test
+    @Transactional
+    public void testWatchOwnGamesOnly() throws Exception {
+        authenticationService.signup("a@b.c", "pwd", "Alcibiade");
+        String alcibiadeToken = authenticationService.signin("a@b.c", "pwd");
+        Player alcibiade = authenticationService.getSession(alcibiadeToken).getAccount().getPlayer();
+
+        authenticationService.signup("b@b.c", "pwd", "Bob");
+        String bobToken = authenticationService.signin("b@b.c", "pwd");
+        Player bob = authenticationService.getSession(bobToken).getAccount().getPlayer();
+
+        ChessGame game = chessGameController.createGame(alcibiadeToken, alcibiade.getId(), bob.getId());
+        Assertions.assertThat(chessGameController.watchGame(bobToken, game.getId())).isNotNull();
+        Assertions.assertThat(chessGameController.watchPlayer(alcibiadeToken, alcibiade.getId())).isNotNull();
+
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(chessGameController).build();
+
+        mockMvc.perform(
+                get("/api/chess/game/" + game.getId() + "/events")
+        ).andExpect(
+                status().is4xxClientError()
+        );
+
+        mockMvc.perform(
+                get("/api/chess/game/player/" + bob.getId() + "/events")
+        ).andExpect(
+                status().is4xxClientError()
+        );
+    }
+
+    @Test(expected = ChessClubException.class)
+    @Transactional
+    public void testRefuseWatchingOtherPlayer() {
+        authenticationService.signup("a@b.c", "pwd", "Alcibiade");
+        String alcibiadeToken = authenticationService.signin("a@b.c", "pwd");
+
+        authenticationService.signup("b@b.c", "pwd", "Bob");
+        String bobToken = authenticationService.signin("b@b.c", "pwd");
+        Player bob = authenticationService.getSession(bobToken).getAccount().getPlayer();
+
+        chessGameController.watchPlayer(alcibiadeToken, bob.getId());
+    }
+
+    @Test
+    @Transactional
+    public void testNoLegalMovesInEndedGame() {
+        authenticationService.signup("a@b.c", "pwd", "Alcibiade");
+        String alcibiadeToken = authenticationService.signin("a@b.c", "pwd");
+        Player alcibiade = authenticationService.getSession(alcibiadeToken).getAccount().getPlayer();
+
+        authenticationService.signup("b@b.c", "pwd", "Bob");
+        String bobToken = authenticationService.signin("b@b.c", "pwd");
+        Player bob = authenticationService.getSession(bobToken).getAccount().getPlayer();
+
+        ChessGame game = chessGameController.createGame(alcibiadeToken, alcibiade.getId(), bob.getId());
+        chessGameController.postMove(alcibiadeToken, game.getId(), "e4");
+        Assertions.assertThat(chessGameController.getLegalMoves(game.getId())).hasSize(20).contains("e5");
+
+        chessGameController.resign(bobToken, game.getId());
+        Assertions.assertThat(chessGameController.getLegalMoves(game.getId())).isEmpty();
+    }
+
+    @Test
+    @DirtiesContext
+    public void testMoveRetriedAfterConcurrentUpdate() {
+        authenticationService.signup("retry-a@b.c", "pwd", "Alcibiade");
+        String alcibiadeToken = authenticationService.signin("retry-a@b.c", "pwd");
+        Player alcibiade = authenticationService.getSession(alcibiadeToken).getAccount().getPlayer();
+
+        authenticationService.signup("retry-b@b.c", "pwd", "Bob");
+        String bobToken = authenticationService.signin("retry-b@b.c", "pwd");
+        Player bob = authenticationService.getSession(bobToken).getAccount().getPlayer();
+
+        ChessGame game = chessGameController.createGame(alcibiadeToken, alcibiade.getId(), bob.getId());
+
+        // Request scoped persistence context, as bound by open-session-in-view
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+
+        try {
+            ChessGame requestGame = chessGameController.getGame(game.getId());
+            Assertions.assertThat(requestGame.getMoves()).isEmpty();
+
+            // Another update of the game commits after the request has read it, the first attempt conflicts
+            jdbcTemplate.update("UPDATE ChessGame SET version = version + 1 WHERE id = ?", game.getId());
+
+            ChessGame updatedGame = chessGameController.postMove(alcibiadeToken, game.getId(), "e4");
+            Assertions.assertThat(updatedGame.getMoves()).extracting(ChessMove::getPgn).containsExactly("e4");
+            Assertions.assertThat(updatedGame.getVersion()).isEqualTo(requestGame.getVersion() + 2);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        Assertions.assertThat(chessGameController.getGame(game.getId()).getMoves())
+                .extracting(ChessMove::getPgn).containsExactly("e4");
+    }
 }
@@ -85,9 +85,11 @@ public class ChessStatsControllerTest {
         ).andExpect(
                 status().is2xxSuccessful()
         ).andExpect(
-                jsonPath("$", hasSize(1))
+                jsonPath("$.games", hasSize(1))
+        ).andExpect(
+                jsonPath("$.games[0].id", Matchers.equalTo(game2.getId().intValue()))
         ).andExpect(
-                jsonPath("$[0].id", Matchers.equalTo(game2.getId().intValue()))
+                jsonPath("$.gameCount", Matchers.equalTo(2))
         );
 
         // Analysis is empty as positions are not processed yet
@@ -125,8 +127,61 @@ public class ChessStatsControllerTest {
                 get("/api/chess/stats/related/999999")
         ).andExpect(
                 status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$.games", hasSize(0))
+        ).andExpect(
+                jsonPath("$.gameCount", Matchers.equalTo(0))
+        );
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testExplorer() throws Exception {
+        authenticationService.signup("a@b.c", "pwd", "Alcibiade");
+        String alcibiadeToken = authenticationService.signin("a@b.c", "pwd");
+        Player alcibiade = authenticationService.getSession(alcibiadeToken).getAccount().getPlayer();
+
+        authenticationService.signup("b@b.c", "pwd", "Bob");
+        String bobToken = authenticationService.signin("b@b.c", "pwd");
+        Player bob = authenticationService.getSession(bobToken).getAccount().getPlayer();
+
+        ChessGame game = chessGameController.createGame(alcibiadeToken, alcibiade.getId(), bob.getId());
+        chessGameController.postMove(alcibiadeToken, game.getId(), "e4");
+        chessGameController.postMove(bobToken, game.getId(), "e5");
+
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(chessStatsController).build();
+
+        // Open games are not part of the explorer
+        mockMvc.perform(
+                get("/api/chess/stats/explorer")
+        ).andExpect(
+                status().is2xxSuccessful()
         ).andExpect(
                 jsonPath("$", hasSize(0))
         );
+
+        chessGameController.resign(bobToken, game.getId());
+
+        mockMvc.perform(
+                get("/api/chess/stats/explorer")
+        ).andExpect(
+                status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$", hasSize(1))
+        ).andExpect(
+                jsonPath("$[0].pgnMove", Matchers.equalTo("e4"))
+        ).andExpect(
+                jsonPath("$[0].whiteWins", Matchers.equalTo(1))
+        );
+
+        mockMvc.perform(
+                get("/api/chess/stats/explorer").param("moves", "e4")
+        ).andExpect(
+                status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$[0].pgnMove", Matchers.equalTo("e5"))
+        ).andExpect(
+                jsonPath("$[0].gameCount", Matchers.equalTo(1))
+        );
     }
 }
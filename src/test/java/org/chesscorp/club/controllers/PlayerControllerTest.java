@@ -27,6 +27,7 @@ import java.util.stream.IntStream;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -145,6 +146,28 @@ public class PlayerControllerTest {
                 jsonPath("$.pvpStatistics", hasSize(1))
         ).andExpect(
                 jsonPath("$.eloHistory", hasSize(0))
+        ).andExpect(
+                header().string("ETag", "\"0-2\"")
+        );
+
+        mockMvc.perform(
+                get("/api/player/profile/" + brian.getId()).header("If-None-Match", "\"0-2\"")
+        ).andExpect(
+                status().isNotModified()
+        );
+
+        // Unrated games still change the statistics
+        Player roger = playerRepository.save(new ExternalPlayer("Roger Taylor", "roger"));
+        chessGameRepository.save(new ChessGame(brian, roger, new ArrayList<>(), ChessGameStatus.PAT, OffsetDateTime.now()));
+
+        mockMvc.perform(
+                get("/api/player/profile/" + brian.getId()).header("If-None-Match", "\"0-2\"")
+        ).andExpect(
+                status().is2xxSuccessful()
+        ).andExpect(
+                jsonPath("$.pvpStatistics", hasSize(2))
+        ).andExpect(
+                header().string("ETag", "\"0-3\"")
         );
     }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.persistence.ChessGameRepository;
 import org.chesscorp.club.persistence.ChessMoveRepository;
 import org.chesscorp.club.persistence.PlayerRepository;
+import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,7 +70,7 @@ public class FetchGeneratedGameTest {
         ).andExpect(
                 jsonPath("$", hasSize(1))
         ).andExpect(
-                jsonPath("$[0].moves", hasSize(4))
+                jsonPath("$[0].moveCount", Matchers.is(4))
         );
     }
 }
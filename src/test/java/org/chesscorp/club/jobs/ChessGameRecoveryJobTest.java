@@ -0,0 +1,21 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.ChessGameService;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+
+public class ChessGameRecoveryJobTest {
+
+    @Test
+    public void testRecoveryRunsOnce() {
+        ChessGameService chessGameService = Mockito.mock(ChessGameService.class);
+        Mockito.when(chessGameService.repairGames()).thenReturn(3L);
+
+        ChessGameRecoveryJob recoveryJob = new ChessGameRecoveryJob(chessGameService);
+        recoveryJob.triggerRecovery();
+        recoveryJob.triggerRecovery();
+
+        Mockito.verify(chessGameService, Mockito.times(1)).repairGames();
+    }
+}
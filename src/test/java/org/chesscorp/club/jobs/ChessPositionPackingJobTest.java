@@ -0,0 +1,21 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.ChessPositionService;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+
+public class ChessPositionPackingJobTest {
+
+    @Test
+    public void testPackingRunsOnce() {
+        ChessPositionService chessPositionService = Mockito.mock(ChessPositionService.class);
+        Mockito.when(chessPositionService.packPositions()).thenReturn(12L);
+
+        ChessPositionPackingJob packingJob = new ChessPositionPackingJob(chessPositionService);
+        packingJob.triggerPacking();
+        packingJob.triggerPacking();
+
+        Mockito.verify(chessPositionService, Mockito.times(1)).packPositions();
+    }
+}
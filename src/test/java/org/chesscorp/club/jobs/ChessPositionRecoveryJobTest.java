@@ -3,6 +3,7 @@ package org.chesscorp.club.jobs;
 import org.assertj.core.api.Assertions;
 import org.chesscorp.club.model.stats.ChessClubPosition;
 import org.chesscorp.club.persistence.ChessPositionRepository;
+import org.chesscorp.club.service.ChessPositionService;
 import org.chesscorp.club.service.MessagingService;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -22,9 +23,13 @@ public class ChessPositionRecoveryJobTest {
         ChessPositionRepository positionRepository = Mockito.mock(ChessPositionRepository.class);
         Mockito.when(positionRepository.findAllByScore(Mockito.any(Integer.class))).thenReturn(positions.stream());
 
-        ChessPositionRecoveryJob recoveryJob = new ChessPositionRecoveryJob(messagingService, positionRepository);
+        ChessPositionService chessPositionService = Mockito.mock(ChessPositionService.class);
+
+        ChessPositionRecoveryJob recoveryJob = new ChessPositionRecoveryJob(messagingService, positionRepository,
+                chessPositionService);
         recoveryJob.triggerRecovery();
 
+        Mockito.verify(chessPositionService).updatePositionHashes();
         Assertions.assertThat(Mockito.mockingDetails(messagingService).getInvocations()).hasSize(1);
     }
 }
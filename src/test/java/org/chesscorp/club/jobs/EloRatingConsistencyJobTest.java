@@ -0,0 +1,38 @@
+package org.chesscorp.club.jobs;
+
+import org.chesscorp.club.service.EloRatingService;
+import org.chesscorp.club.service.PlayerService;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+
+public class EloRatingConsistencyJobTest {
+
+    @Test
+    public void testCheckRunsOnce() {
+        PlayerService playerService = Mockito.mock(PlayerService.class);
+        EloRatingService eloRatingService = Mockito.mock(EloRatingService.class);
+        Mockito.when(playerService.checkRatings()).thenReturn(2L);
+
+        EloRatingConsistencyJob consistencyJob = new EloRatingConsistencyJob(playerService, eloRatingService, false);
+        consistencyJob.triggerCheck();
+        consistencyJob.triggerCheck();
+
+        Mockito.verify(playerService, Mockito.times(1)).checkRatings();
+        Mockito.verify(eloRatingService, Mockito.times(2)).rateGames();
+        Mockito.verify(eloRatingService, Mockito.never()).rebuildRatings();
+    }
+
+    @Test
+    public void testRebuild() {
+        PlayerService playerService = Mockito.mock(PlayerService.class);
+        EloRatingService eloRatingService = Mockito.mock(EloRatingService.class);
+
+        EloRatingConsistencyJob consistencyJob = new EloRatingConsistencyJob(playerService, eloRatingService, true);
+        consistencyJob.triggerCheck();
+        consistencyJob.triggerCheck();
+
+        Mockito.verify(eloRatingService, Mockito.times(1)).rebuildRatings();
+        Mockito.verify(eloRatingService, Mockito.times(1)).rateGames();
+    }
+}
@@ -0,0 +1,96 @@
+package org.chesscorp.club.jobs;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.persistence.ChessGameRepository;
+import org.chesscorp.club.persistence.ChessMoveRepository;
+import org.chesscorp.club.persistence.ChessMoveToPositionRepository;
+import org.chesscorp.club.persistence.ChessPositionRepository;
+import org.chesscorp.club.persistence.PlayerRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PGN import with many workers, tiny queues and small batches, so that every stage waits on the others.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("pipeline")
+public class PgnImportPipelineTest {
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private ChessGameRepository chessGameRepository;
+
+    @Autowired
+    private ChessMoveRepository chessMoveRepository;
+
+    @Autowired
+    private ChessPositionRepository chessPositionRepository;
+
+    @Autowired
+    private ChessMoveToPositionRepository chessMoveToPositionRepository;
+
+    @Autowired
+    private ObjectFactory<PgnImportProcessor> pgnImportProcessorObjectFactory;
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testImportInBatches() throws IOException {
+        PgnImportProcessor pgnImportProcessor = pgnImportProcessorObjectFactory.getObject();
+
+        pgnImportProcessor.process(new ClassPathResource("samples-pgn/McDonnell.pgn").getFile());
+
+        Assertions.assertThat(playerRepository.count()).isEqualTo(8);
+        Assertions.assertThat(chessGameRepository.count()).isEqualTo(106);
+        Assertions.assertThat(chessMoveRepository.count()).isEqualTo(8434L);
+        Assertions.assertThat(chessPositionRepository.count()).isEqualTo(7246L);
+        Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8434L);
+
+        // Games are persisted in file order whatever the worker that validated them
+        Assertions.assertThat(chessGameRepository.findAll(new Sort("id")))
+                .extracting(ChessGame::getMoveCount)
+                .containsExactlyElementsOf(readMoveCounts("samples-pgn/McDonnell.pgn"));
+
+        // Importing the same file again only finds duplicates
+        pgnImportProcessor.process(new ClassPathResource("samples-pgn/McDonnell.pgn").getFile());
+
+        Assertions.assertThat(chessGameRepository.count()).isEqualTo(106);
+        Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8434L);
+    }
+
+    private List<Integer> readMoveCounts(String resource) throws IOException {
+        List<Integer> moveCounts = new ArrayList<>();
+
+        try (InputStream pgnStream = new ClassPathResource(resource).getInputStream()) {
+            PgnBookReader bookReader = new PgnBookReader(pgnStream);
+            PgnGameModel pgnGameModel;
+
+            while ((pgnGameModel = bookReader.readGame()) != null) {
+                moveCounts.add(pgnGameModel.getMoves().size());
+            }
+        }
+
+        return moveCounts;
+    }
+}
@@ -1,5 +1,6 @@
 package org.chesscorp.club.monitoring;
 
+import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 public class PerformanceMonitorTest {
@@ -18,4 +19,16 @@ public class PerformanceMonitorTest {
         monitor.register("Component 1", "operation", 12, "item");
     }
 
+    @Test
+    public void testCounters() {
+        PerformanceMonitor monitor = new PerformanceMonitorImpl();
+        Assertions.assertThat(monitor.getCounter("Component 1", "hit")).isEqualTo(0);
+        monitor.increment("Component 1", "hit");
+        monitor.increment("Component 1", "hit");
+        monitor.increment("Component 1", "miss");
+        Assertions.assertThat(monitor.getCounter("Component 1", "hit")).isEqualTo(2);
+        Assertions.assertThat(monitor.getCounter("Component 1", "miss")).isEqualTo(1);
+        Assertions.assertThat(monitor.getCounter("Component 2", "hit")).isEqualTo(0);
+    }
+
 }
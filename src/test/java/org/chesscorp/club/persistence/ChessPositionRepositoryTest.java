@@ -0,0 +1,39 @@
+package org.chesscorp.club.persistence;
+
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.model.stats.ChessClubPosition;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test position repository insert methods.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+public class ChessPositionRepositoryTest {
+
+    private static final String POSITION = "wRNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnrKQkq-";
+
+    @Autowired
+    private ChessPositionRepository chessPositionRepository;
+
+    @Test
+    @Transactional
+    public void testInsertIfAbsent() {
+        Long positionId = chessPositionRepository.insertIfAbsent(POSITION);
+        Assertions.assertThat(positionId).isNotNull();
+
+        // The duplicate is rolled back to a savepoint, the transaction remains usable
+        Assertions.assertThat(chessPositionRepository.insertIfAbsent(POSITION)).isNull();
+
+        Assertions.assertThat(chessPositionRepository.findByPositionHash(ZobristHash.hash(POSITION)))
+                .extracting(ChessClubPosition::getId).containsExactly(positionId);
+        Assertions.assertThat(chessPositionRepository.findOne(positionId).getText()).isEqualTo(POSITION);
+    }
+}
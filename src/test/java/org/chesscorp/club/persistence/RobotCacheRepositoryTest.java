@@ -7,6 +7,7 @@ import org.assertj.core.api.Assertions;
 import org.chesscorp.club.Application;
 import org.chesscorp.club.model.people.RobotPlayer;
 import org.chesscorp.club.model.robot.RobotCacheEntry;
+import org.chesscorp.club.utilities.position.ZobristHash;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,5 +56,26 @@ public class RobotCacheRepositoryTest {
         robotCacheRepository.save(cacheEntry);
 
         Assertions.assertThat(robotCacheRepository.findAll()).hasSize(1);
+
+        Assertions.assertThat(robotCacheRepository.findByPositionHashAndEngineAndParameters(
+                ZobristHash.hash(positionString), player.getEngine(), player.getParameters()))
+                .extracting(RobotCacheEntry::getPosition).containsExactly(positionString);
+    }
+
+    @Test
+    @Transactional
+    public void testInsertIfAbsent() {
+        String positionString = positionMarshaller.convertPositionToString(chessRules.getInitialPosition());
+
+        Assertions.assertThat(robotCacheRepository.insertIfAbsent("basicengine", "{}", positionString, "e4"))
+                .isTrue();
+        Assertions.assertThat(robotCacheRepository.insertIfAbsent("basicengine", "{}", positionString, "d4"))
+                .isFalse();
+        Assertions.assertThat(robotCacheRepository.insertIfAbsent("basicengine", "{level:2}", positionString, "d4"))
+                .isTrue();
+
+        Assertions.assertThat(robotCacheRepository.findByPositionHashAndEngineAndParameters(
+                ZobristHash.hash(positionString), "basicengine", "{}"))
+                .extracting(RobotCacheEntry::getPgnMoveText).containsExactly("e4");
     }
 }
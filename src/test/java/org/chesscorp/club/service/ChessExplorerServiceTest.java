@@ -0,0 +1,105 @@
+package org.chesscorp.club.service;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.dto.ChessExplorerMove;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ChessExplorerServiceTest {
+    @Autowired
+    private ChessExplorerService chessExplorerService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testRecordGames() {
+        Assertions.assertThat(chessExplorerService.getContinuations(Collections.emptyList())).isEmpty();
+
+        chessExplorerService.recordGame(Arrays.asList("e4", "e5", "Nf3"), ChessGameStatus.WHITEWON);
+        chessExplorerService.recordGame(Arrays.asList("e4", "c5"), ChessGameStatus.PAT);
+        chessExplorerService.recordGame(Arrays.asList("d4", "d5"), ChessGameStatus.BLACKWON);
+        chessExplorerService.recordGame(Arrays.asList("e4", "e5"), ChessGameStatus.OPEN);
+
+        List<ChessExplorerMove> initialMoves = chessExplorerService.getContinuations(Collections.emptyList());
+        Assertions.assertThat(initialMoves).extracting(ChessExplorerMove::getPgnMove).containsExactly("e4", "d4");
+        Assertions.assertThat(initialMoves.get(0).getGameCount()).isEqualTo(2);
+        Assertions.assertThat(initialMoves.get(0).getWhiteWins()).isEqualTo(1);
+        Assertions.assertThat(initialMoves.get(0).getDraws()).isEqualTo(1);
+        Assertions.assertThat(initialMoves.get(0).getBlackWins()).isEqualTo(0);
+        Assertions.assertThat(initialMoves.get(1).getBlackWins()).isEqualTo(1);
+
+        List<ChessExplorerMove> e4Moves = chessExplorerService.getContinuations(Collections.singletonList("e4"));
+        Assertions.assertThat(e4Moves).extracting(ChessExplorerMove::getPgnMove).containsExactly("c5", "e5");
+        Assertions.assertThat(e4Moves).extracting(ChessExplorerMove::getGameCount).containsExactly(1L, 1L);
+
+        Assertions.assertThat(chessExplorerService.getContinuations(Arrays.asList("e4", "e5", "Nf3"))).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testTranspositions() {
+        chessExplorerService.recordGame(Arrays.asList("Nf3", "Nf6", "Ng1", "Ng8", "e4"), ChessGameStatus.WHITEWON);
+
+        // The game went twice through the initial position but only counts once
+        List<ChessExplorerMove> initialMoves = chessExplorerService.getContinuations(Collections.emptyList());
+        Assertions.assertThat(initialMoves).extracting(ChessExplorerMove::getPgnMove).containsExactly("Nf3", "e4");
+        Assertions.assertThat(initialMoves).extracting(ChessExplorerMove::getGameCount).containsExactly(1L, 1L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testCanonicalMoves() {
+        chessExplorerService.recordGame(Arrays.asList("e4", "f6", "Qh5+"), ChessGameStatus.WHITEWON);
+        chessExplorerService.recordGame(Arrays.asList("e4", "f6", "Qh5"), ChessGameStatus.BLACKWON);
+
+        List<ChessExplorerMove> moves = chessExplorerService.getContinuations(Arrays.asList("e4", "f6"));
+        Assertions.assertThat(moves).extracting(ChessExplorerMove::getPgnMove).containsExactly("Qh5+");
+        Assertions.assertThat(moves.get(0).getGameCount()).isEqualTo(2);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testRecordedOnCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.execute(status -> {
+            chessExplorerService.recordGame(Arrays.asList("e4", "e5"), ChessGameStatus.WHITEWON);
+            chessExplorerService.recordGame(Arrays.asList("e4", "c5"), ChessGameStatus.PAT);
+            status.setRollbackOnly();
+            return null;
+        });
+        Assertions.assertThat(chessExplorerService.getContinuations(Collections.emptyList())).isEmpty();
+
+        transactionTemplate.execute(status -> {
+            chessExplorerService.recordGame(Arrays.asList("e4", "e5"), ChessGameStatus.WHITEWON);
+            chessExplorerService.recordGame(Arrays.asList("e4", "c5"), ChessGameStatus.PAT);
+
+            // Nothing is visible before the commit
+            Assertions.assertThat(chessExplorerService.getContinuations(Collections.emptyList())).isEmpty();
+            return null;
+        });
+
+        List<ChessExplorerMove> initialMoves = chessExplorerService.getContinuations(Collections.emptyList());
+        Assertions.assertThat(initialMoves).extracting(ChessExplorerMove::getPgnMove).containsExactly("e4");
+        Assertions.assertThat(initialMoves.get(0).getGameCount()).isEqualTo(2);
+    }
+}
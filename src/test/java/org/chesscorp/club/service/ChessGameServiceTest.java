@@ -1,15 +1,20 @@
 package org.chesscorp.club.service;
 
 import org.alcibiade.chess.model.ChessGameStatus;
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
 import org.assertj.core.api.Assertions;
 import org.chesscorp.club.Application;
+import org.chesscorp.club.dto.ChessGameSummary;
 import org.chesscorp.club.exception.InvalidChessMoveException;
 import org.chesscorp.club.jobs.GameUpdateListener;
 import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.ChessGameState;
 import org.chesscorp.club.model.game.ChessMove;
 import org.chesscorp.club.model.people.ClubPlayer;
 import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.model.people.RobotPlayer;
+import org.chesscorp.club.persistence.ChessGameRepository;
 import org.chesscorp.club.persistence.ChessMoveRepository;
 import org.chesscorp.club.persistence.EloRatingRepository;
 import org.chesscorp.club.persistence.PlayerRepository;
@@ -20,12 +25,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SuppressWarnings("UnusedAssignment")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -40,6 +54,9 @@ public class ChessGameServiceTest {
     @Autowired
     private PlayerRepository playerRepository;
 
+    @Autowired
+    private ChessGameRepository chessGameRepository;
+
     @Autowired
     private ChessMoveRepository chessMoveRepository;
 
@@ -52,6 +69,9 @@ public class ChessGameServiceTest {
     @Autowired
     private GameUpdateListener gameUpdateListener;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     @Transactional
     public void testGameOperations() throws InterruptedException {
@@ -92,6 +112,170 @@ public class ChessGameServiceTest {
         Assertions.assertThat(chessMoveRepository.findByGameId(game.getId())).isNotEmpty();
     }
 
+    @Test
+    @Transactional
+    public void testPositionSnapshot() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        ChessGame game = chessGameService.createGame(p1.getId(), p2.getId());
+        Assertions.assertThat(game.getPosition()).isNotNull();
+
+        game = chessGameService.move(game, "e4");
+        String positionAfterE4 = game.getPosition();
+        Assertions.assertThat(positionAfterE4).isNotNull();
+
+        // A game stored without snapshot is replayed, then backfilled
+        ChessGame legacyGame = new ChessGame(p1, p2);
+        chessGameRepository.save(legacyGame);
+        chessMoveRepository.save(legacyGame.addMove(OffsetDateTime.now(), "e4"));
+        Assertions.assertThat(legacyGame.getPosition()).isNull();
+
+        Assertions.assertThat(chessGameService.repairGames()).isEqualTo(1);
+        Assertions.assertThat(chessGameService.getGame(legacyGame.getId()).getPosition()).isEqualTo(positionAfterE4);
+
+        legacyGame = chessGameService.move(chessGameService.getGame(legacyGame.getId()), "e5");
+        Assertions.assertThat(legacyGame.getMoves()).extracting(ChessMove::getPgn).containsExactly("e4", "e5");
+        Assertions.assertThat(legacyGame.getMoveCount()).isEqualTo(2);
+    }
+
+    @Test
+    @Transactional
+    public void testRepairSkipsBrokenGames() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        ChessGame brokenGame = new ChessGame(p1, p2);
+        chessGameRepository.save(brokenGame);
+        chessMoveRepository.save(brokenGame.addMove(OffsetDateTime.now(), "Ke3"));
+
+        ChessGame legacyGame = new ChessGame(p1, p2);
+        chessGameRepository.save(legacyGame);
+        chessMoveRepository.save(legacyGame.addMove(OffsetDateTime.now(), "e4"));
+
+        // Move counts cleared as by previous releases are counted along positions
+        legacyGame.setMoveCount(null);
+        chessGameRepository.saveAndFlush(legacyGame);
+
+        Assertions.assertThat(chessGameService.repairGames()).isEqualTo(2);
+        Assertions.assertThat(chessGameService.getGame(brokenGame.getId()).getPosition()).isNull();
+        Assertions.assertThat(chessGameService.getGame(legacyGame.getId()).getPosition()).isNotNull();
+        Assertions.assertThat(chessGameService.getGame(legacyGame.getId()).getMoveCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    public void testImportFingerprint() throws IOException {
+        String pgn = "[Event \"Test\"]\n[Site \"?\"]\n[Date \"2016.01.02\"]\n[Round \"1\"]\n"
+                + "[White \"Alpha\"]\n[Black \"Beta\"]\n[Result \"1-0\"]\n\n"
+                + "1.e4 e5 2.Qh5 Nc6 3.Bc4 Nf6 4.Qxf7# 1-0\n";
+        PgnGameModel pgnGameModel = new PgnBookReader(new ByteArrayInputStream(pgn.getBytes("UTF-8"))).readGame();
+
+        ChessGame game = chessGameService.batchImport(pgnGameModel);
+        String fingerprint = game.getFingerprint();
+        Assertions.assertThat(fingerprint).hasSize(64);
+        Assertions.assertThat(chessGameService.batchImport(pgnGameModel)).isNull();
+
+        // A game imported by a previous release gets its fingerprint on repair
+        game.setFingerprint(null);
+        chessGameRepository.saveAndFlush(game);
+        Assertions.assertThat(chessGameService.repairGames()).isEqualTo(1);
+        Assertions.assertThat(chessGameRepository.findOne(game.getId()).getFingerprint()).isEqualTo(fingerprint);
+        Assertions.assertThat(chessGameService.batchImport(pgnGameModel)).isNull();
+        Assertions.assertThat(chessGameRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    public void testGameSummaries() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+        Player p3 = playerRepository.save(new ClubPlayer("Player 3"));
+
+        ChessGame game1 = chessGameService.createGame(p1.getId(), p2.getId());
+        chessGameService.move(game1, "e4");
+        ChessGame game2 = chessGameService.createGame(p3.getId(), p1.getId());
+
+        List<ChessGameSummary> summaries = chessGameService.searchGameSummaries(p1.getId(), true, 0, 10);
+        Assertions.assertThat(summaries).extracting(ChessGameSummary::getId).containsExactly(game1.getId(), game2.getId());
+        Assertions.assertThat(summaries).extracting(ChessGameSummary::getMoveCount).containsExactly(1, 0);
+        Assertions.assertThat(summaries).extracting(ChessGameSummary::getWhitePlayerName).containsExactly("Player 1", "Player 3");
+        Assertions.assertThat(summaries).extracting(ChessGameSummary::getBlackPlayerId).containsExactly(p2.getId(), p1.getId());
+
+        Assertions.assertThat(chessGameService.searchGameSummaries(p1.getId(), false, 0, 10)).isEmpty();
+        Assertions.assertThat(chessGameService.searchGameSummaries(p2.getId(), null, 0, 10)).hasSize(1);
+        // Pages follow game identifiers across both colors
+        List<ChessGameSummary> firstPage = chessGameService.searchGameSummaries(p1.getId(), null, 0, 1);
+        Assertions.assertThat(firstPage).extracting(ChessGameSummary::getId).containsExactly(game1.getId());
+        List<ChessGameSummary> secondPage = chessGameService.searchGameSummaries(p1.getId(), null, game1.getId(), 1);
+        Assertions.assertThat(secondPage).extracting(ChessGameSummary::getId).containsExactly(game2.getId());
+        Assertions.assertThat(chessGameService.searchGameSummaries(p1.getId(), null, game2.getId(), 1)).isEmpty();
+
+        try (Stream<ChessGameSummary> stream = chessGameService.streamGameSummaries(p1.getId(), null)) {
+            Assertions.assertThat(stream.map(ChessGameSummary::getId).collect(Collectors.toList()))
+                    .containsExactly(game1.getId(), game2.getId());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void testGameState() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        ChessGame game = chessGameService.createGame(p1.getId(), p2.getId());
+        ChessGameState state = chessGameService.getGameState(game.getId());
+        Assertions.assertThat(state.getMoveCount()).isEqualTo(0);
+        Assertions.assertThat(state.getLegalMoves()).hasSize(20).contains("e4", "Nf3").doesNotContain("e5");
+        Assertions.assertThat(state.getLegalMove("Nf3")).isNotNull();
+        Assertions.assertThat(state.getNextPlayerId()).isEqualTo(p1.getId());
+
+        game = chessGameService.move(game, "e4");
+        state = chessGameService.getGameState(game.getId());
+        Assertions.assertThat(state.getMoveCount()).isEqualTo(1);
+        Assertions.assertThat(state.getLegalMoves()).hasSize(20);
+        Assertions.assertThat(state.getNextPlayerId()).isEqualTo(p2.getId());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testGameStateReadBeforeMove() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+        Long gameId = chessGameService.createGame(p1.getId(), p2.getId()).getId();
+
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate moveTransaction = new TransactionTemplate(transactionManager);
+        moveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // A read that loaded the game before a move commits after it
+        ChessGameState readState = readTransaction.execute(status -> {
+            ChessGameState state = chessGameService.getGameState(gameId);
+            moveTransaction.execute(moveStatus -> chessGameService.move(chessGameService.getGame(gameId), "e4"));
+            return state;
+        });
+
+        Assertions.assertThat(readState.getMoveCount()).isEqualTo(0);
+        ChessGameState state = chessGameService.getGameState(gameId);
+        Assertions.assertThat(state.getMoveCount()).isEqualTo(1);
+        Assertions.assertThat(state.getNextPlayerId()).isEqualTo(p2.getId());
+    }
+
+    @Test(expected = OptimisticLockingFailureException.class)
+    @DirtiesContext
+    public void testConcurrentMoves() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+        ChessGame game = chessGameService.createGame(p1.getId(), p2.getId());
+
+        // Two requests loading the same game version
+        ChessGame game1 = chessGameService.getGame(game.getId());
+        ChessGame game2 = chessGameService.getGame(game.getId());
+
+        chessGameService.move(game1, "e4");
+        chessGameService.move(game2, "d4");
+    }
+
     @Test
     @Transactional
     public void testRobotAsBlack() throws InterruptedException {
@@ -168,6 +352,10 @@ public class ChessGameServiceTest {
 
         Assertions.assertThat(eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(p1.getId()).getEloRating()).isEqualTo(1210);
         Assertions.assertThat(eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(p2.getId()).getEloRating()).isEqualTo(1190);
+
+        Assertions.assertThat(playerRepository.findOne(p1.getId()).getEloRating()).isEqualTo(1210);
+        Assertions.assertThat(playerRepository.findOne(p1.getId()).getGamesPlayed()).isEqualTo(1);
+        Assertions.assertThat(playerRepository.findOne(p2.getId()).getEloRating()).isEqualTo(1190);
     }
 
     @Test(expected = InvalidChessMoveException.class)
@@ -0,0 +1,157 @@
+package org.chesscorp.club.service;
+
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.monitoring.PerformanceMonitorImpl;
+import org.chesscorp.club.utilities.collections.MappedLongLongTable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Position identifiers cache tests.
+ */
+public class ChessPositionIdCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHitRate() {
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 2);
+        Assertions.assertThat(cache.getHitRate()).isEqualTo(0.0);
+
+        Assertions.assertThat(cache.get(42L, -42L)).isNull();
+        cache.put(42L, -42L, 1L);
+        Assertions.assertThat(cache.get(42L, -42L)).isEqualTo(1L);
+        Assertions.assertThat(cache.getHitRate()).isEqualTo(0.5);
+
+        cache.put(43L, -43L, 2L);
+        cache.put(44L, -44L, 3L);
+        Assertions.assertThat(cache.get(42L, -42L)).isNull();
+        Assertions.assertThat(cache.get(44L, -44L)).isEqualTo(3L);
+    }
+
+    @Test
+    public void testPublishedAfterCommit() {
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.put(42L, -42L, 1L);
+            cache.put(43L, -43L, 2L);
+            Assertions.assertThat(cache.get(42L, -42L)).isNull();
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Assertions.assertThat(cache.get(42L, -42L)).isEqualTo(1L);
+        Assertions.assertThat(cache.get(43L, -43L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void testDiscardedOnRollback() {
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.put(42L, -42L, 1L);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Assertions.assertThat(cache.get(42L, -42L)).isNull();
+    }
+
+    @Test
+    public void testSuspendedTransaction() {
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.put(42L, -42L, 1L);
+            List<TransactionSynchronization> outer = TransactionSynchronizationManager.getSynchronizations();
+            outer.forEach(TransactionSynchronization::suspend);
+            TransactionSynchronizationManager.clearSynchronization();
+
+            // A new inner transaction publishes its own entries only
+            TransactionSynchronizationManager.initSynchronization();
+            cache.put(43L, -43L, 2L);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.clearSynchronization();
+
+            TransactionSynchronizationManager.initSynchronization();
+            outer.forEach(TransactionSynchronization::resume);
+            outer.forEach(TransactionSynchronizationManager::registerSynchronization);
+            TransactionSynchronizationUtils.invokeAfterCompletion(outer, TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Assertions.assertThat(cache.get(42L, -42L)).isNull();
+        Assertions.assertThat(cache.get(43L, -43L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void testDedupTable() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 1,
+                new MappedLongLongTable(file, 1024));
+        cache.put(42L, -42L, 1L);
+        cache.put(43L, -43L, 2L);
+        Assertions.assertThat(cache.get(42L, -42L)).isEqualTo(1L);
+        cache.close();
+
+        // Entries survive a restart
+        ChessPositionIdCache restarted = new ChessPositionIdCache(new PerformanceMonitorImpl(), 1,
+                new MappedLongLongTable(file, 1024));
+        restarted.checkDedupTable(2L, (hash, check, id) -> true);
+        Assertions.assertThat(restarted.get(42L, -42L)).isEqualTo(1L);
+        Assertions.assertThat(restarted.get(43L, -43L)).isEqualTo(2L);
+
+        // Entries replaced by a colliding position are replaced in the dedup table as well
+        restarted.put(43L, 43L, 3L);
+        restarted.close();
+        restarted = new ChessPositionIdCache(new PerformanceMonitorImpl(), 1, new MappedLongLongTable(file, 1024));
+        Assertions.assertThat(restarted.get(43L, -43L)).isNull();
+        Assertions.assertThat(restarted.get(43L, 43L)).isEqualTo(3L);
+
+        // Entries beyond the database content are dropped
+        restarted.checkDedupTable(2L, (hash, check, id) -> true);
+        Assertions.assertThat(restarted.get(42L, -42L)).isNull();
+        restarted.close();
+    }
+
+    @Test
+    public void testDedupTableMismatch() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        ChessPositionIdCache cache = new ChessPositionIdCache(new PerformanceMonitorImpl(), 1,
+                new MappedLongLongTable(file, 1024));
+        cache.put(42L, -42L, 1L);
+        cache.put(43L, -43L, 2L);
+        cache.close();
+
+        // A dedup file built against another database is dropped when its entries don't match
+        ChessPositionIdCache restarted = new ChessPositionIdCache(new PerformanceMonitorImpl(), 1,
+                new MappedLongLongTable(file, 1024));
+        restarted.checkDedupTable(2L, (hash, check, id) -> id != 2L);
+        Assertions.assertThat(restarted.get(42L, -42L)).isNull();
+        Assertions.assertThat(restarted.get(43L, -43L)).isNull();
+        restarted.close();
+    }
+}
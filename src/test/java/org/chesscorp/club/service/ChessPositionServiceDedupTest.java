@@ -0,0 +1,72 @@
+package org.chesscorp.club.service;
+
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.model.stats.ChessClubPosition;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.chesscorp.club.utilities.position.ZobristHash;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Position lookups through the off-heap dedup table, with a single entry heap cache.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("dedup")
+public class ChessPositionServiceDedupTest {
+
+    @Autowired
+    private ChessPositionService chessPositionService;
+
+    @Autowired
+    private ChessPositionIdCache chessPositionIdCache;
+
+    @Autowired
+    private PerformanceMonitor performanceMonitor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testCollidingDedupEntry() {
+        String positionText1 = "bR-BQ-K-RPPP---PP--N--B-----P---q-----p----Pb----pp--n-pprn--k--r--kq-";
+        String positionText2 = "wR-BQ-RK-PPPP--PP--N--N----B-Pp--------p---p-----pp-pqpbprnb-k-nr--kq-";
+        String positionText3 = "wRNBQKB-RPPPP--PP-----N------Pp--------p---------pppp-p-prnbqkbnrKQkqg";
+
+        // Simulate a hash collision by storing another position under the same hash
+        ChessClubPosition position1 = chessPositionService.findOrCreatePosition(positionText1);
+        chessPositionIdCache.put(ZobristHash.hash(positionText2), ZobristHash.check(positionText1), position1.getId());
+
+        // Evict the entry from the heap, it is then only found in the dedup file
+        chessPositionService.findOrCreatePosition(positionText3);
+        long dedupHits = performanceMonitor.getCounter("ChessPositionIdCache", "dedup-hit");
+        long dedupMisses = performanceMonitor.getCounter("ChessPositionIdCache", "dedup-miss");
+
+        // The check hash tells the positions apart without reading the colliding one
+        ChessClubPosition position2 = chessPositionService.findOrCreatePosition(positionText2);
+        Assertions.assertThat(performanceMonitor.getCounter("ChessPositionIdCache", "dedup-hit")).isEqualTo(dedupHits);
+        Assertions.assertThat(performanceMonitor.getCounter("ChessPositionIdCache", "dedup-miss"))
+                .isEqualTo(dedupMisses + 1);
+        Assertions.assertThat(position2.getId()).isNotEqualTo(position1.getId());
+        Assertions.assertThat(position2.getText()).isEqualTo(positionText2);
+
+        // The dedup file now holds the right identifier
+        Assertions.assertThat(new TransactionTemplate(transactionManager).execute(
+                status -> chessPositionService.findOrCreatePosition(positionText1).getId()))
+                .isEqualTo(position1.getId());
+        Assertions.assertThat(chessPositionIdCache.get(
+                ZobristHash.hash(positionText2), ZobristHash.check(positionText2))).isEqualTo(position2.getId());
+    }
+}
@@ -0,0 +1,63 @@
+package org.chesscorp.club.service;
+
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.jobs.PgnImportProcessor;
+import org.chesscorp.club.model.stats.ChessMoveToPosition;
+import org.chesscorp.club.persistence.ChessMoveToPositionRepository;
+import org.chesscorp.club.persistence.ChessPositionRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Position indexing with a worker pool.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("parallel")
+public class ChessPositionServiceParallelTest {
+
+    @Autowired
+    private ChessPositionRepository chessPositionRepository;
+
+    @Autowired
+    private ChessPositionService chessPositionService;
+
+    @Autowired
+    private ChessMoveToPositionRepository chessMoveToPositionRepository;
+
+    @Autowired
+    private PgnImportProcessor pgnImportProcessor;
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testParallelReindex() throws IOException {
+        ClassPathResource cpr = new ClassPathResource("samples-pgn/McDonnell.pgn");
+        pgnImportProcessor.process(cpr.getFile());
+
+        Map<Long, Long> sequentialIndex = getPositionsByMove();
+        chessMoveToPositionRepository.deleteAllInBatch();
+
+        Assertions.assertThat(chessPositionService.updateMovePositions()).isEqualTo(8434L);
+        Assertions.assertThat(chessPositionRepository.count()).isEqualTo(7246L);
+        Assertions.assertThat(getPositionsByMove()).isEqualTo(sequentialIndex);
+    }
+
+    private Map<Long, Long> getPositionsByMove() {
+        return chessMoveToPositionRepository.findAll().stream().collect(Collectors.toMap(
+                ChessMoveToPosition::getChessMoveId, mtp -> mtp.getChessPosition().getId()));
+    }
+}
@@ -1,26 +1,38 @@
 package org.chesscorp.club.service;
 
+import org.alcibiade.chess.model.ChessGameStatus;
 import org.assertj.core.api.Assertions;
 import org.chesscorp.club.Application;
+import org.chesscorp.club.dto.ChessAnalysis;
+import org.chesscorp.club.dto.ChessAnalysisMove;
+import org.chesscorp.club.dto.ChessGameSummary;
+import org.chesscorp.club.dto.ChessRelatedGames;
 import org.chesscorp.club.jobs.PgnImportProcessor;
 import org.chesscorp.club.model.game.ChessGame;
 import org.chesscorp.club.model.people.ClubPlayer;
 import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.model.stats.ChessClubPosition;
 import org.chesscorp.club.persistence.*;
+import org.chesscorp.club.utilities.position.PositionCodec;
+import org.chesscorp.club.utilities.position.ZobristHash;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.math.BigInteger;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(classes = Application.class)
@@ -47,8 +59,17 @@ public class ChessPositionServiceTest {
     @Autowired
     private PgnImportProcessor pgnImportProcessor;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChessPositionIdCache chessPositionIdCache;
+
     @Test
-    @Transactional
+    @Transactional(propagation = Propagation.NEVER)
     public void testIndexImportedGames() throws IOException {
         ClassPathResource cpr = new ClassPathResource("samples-pgn/McDonnell.pgn");
 
@@ -67,10 +88,55 @@ public class ChessPositionServiceTest {
         Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8434L);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testReindexInChunks() throws IOException {
+        ClassPathResource cpr = new ClassPathResource("samples-pgn/McDonnell.pgn");
+
+        pgnImportProcessor.process(cpr.getFile());
+        chessMoveToPositionRepository.deleteAllInBatch();
+        Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(0L);
+
+        Assertions.assertThat(chessPositionService.updateMovePositions()).isEqualTo(8434L);
+        Assertions.assertThat(chessPositionRepository.count()).isEqualTo(7246L);
+        Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8434L);
+
+        Assertions.assertThat(chessPositionService.updateMovePositions()).isEqualTo(0L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testChunksCommittedSeparately() throws IOException {
+        ClassPathResource cpr = new ClassPathResource("samples-pgn/McDonnell.pgn");
+
+        pgnImportProcessor.process(cpr.getFile());
+        chessMoveToPositionRepository.deleteAllInBatch();
+
+        // Chunks are committed even if the calling transaction is rolled back
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return chessPositionService.updateMovePositions();
+        });
+        Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8434L);
+
+        // A failing chunk keeps the chunks committed before it, 1000 moves each
+        chessMoveToPositionRepository.deleteAllInBatch();
+        jdbcTemplate.update("UPDATE ChessMove SET pgn = 'Zz9' WHERE id = (SELECT MAX(id) FROM ChessMove)");
+
+        try {
+            chessPositionService.updateMovePositions();
+            Assertions.fail("The last chunk should not be indexed");
+        } catch (RuntimeException e) {
+            Assertions.assertThat(chessMoveToPositionRepository.count()).isEqualTo(8000L);
+        }
+    }
+
     @Test
     @Transactional(propagation = Propagation.NEVER)
     public void testRelatedGames() throws Exception {
-        Assertions.assertThat(chessPositionService.findRelatedGames(666L)).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(666L).getGames()).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(666L).getGameCount()).isEqualTo(0);
 
         Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
         Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
@@ -83,8 +149,9 @@ public class ChessPositionServiceTest {
         chessMoveRepository.save(g1.addMove(OffsetDateTime.now(), "e5"));
         chessPositionService.updateMovePositions();
 
-        Assertions.assertThat(chessPositionService.findRelatedGames(g1.getId())).isEmpty();
-        Assertions.assertThat(chessPositionService.findRelatedGames(BigInteger.valueOf(g1.getId()))).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(g1.getId()).getGames()).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(BigInteger.valueOf(g1.getId())).getGames())
+                .isEmpty();
 
         // Game 2 - related to 1
 
@@ -92,12 +159,16 @@ public class ChessPositionServiceTest {
 
         chessGameRepository.save(g2);
         chessPositionService.updateMovePositions();
-        Assertions.assertThat(chessPositionService.findRelatedGames(g2.getId())).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(g2.getId()).getGames()).isEmpty();
 
         chessMoveRepository.save(g2.addMove(OffsetDateTime.now(), "e4"));
         chessPositionService.updateMovePositions();
 
-        Assertions.assertThat(chessPositionService.findRelatedGames(g2.getId())).containsExactly(g1);
+        ChessRelatedGames relatedGames = chessPositionService.findRelatedGames(g2.getId());
+        Assertions.assertThat(relatedGames.getGames()).extracting(ChessGameSummary::getId).containsExactly(g1.getId());
+        Assertions.assertThat(relatedGames.getGames()).extracting(ChessGameSummary::getWhitePlayerName)
+                .containsExactly("Player 1");
+        Assertions.assertThat(relatedGames.getGameCount()).isEqualTo(2);
 
         // Game 3 - related to none
 
@@ -105,11 +176,54 @@ public class ChessPositionServiceTest {
 
         chessGameRepository.save(g3);
         chessPositionService.updateMovePositions();
-        Assertions.assertThat(chessPositionService.findRelatedGames(g3.getId())).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(g3.getId()).getGames()).isEmpty();
 
         chessMoveRepository.save(g3.addMove(OffsetDateTime.now(), "d4"));
         chessPositionService.updateMovePositions();
-        Assertions.assertThat(chessPositionService.findRelatedGames(g3.getId())).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(g3.getId()).getGames()).isEmpty();
+        Assertions.assertThat(chessPositionService.findRelatedGames(g3.getId()).getGameCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testGameAnalysis() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        ChessGame game = new ChessGame(p1, p2, new ArrayList<>(), ChessGameStatus.WHITEWON, OffsetDateTime.now());
+        chessGameRepository.save(game);
+        chessMoveRepository.save(game.addMove(OffsetDateTime.now(), "e4"));
+        chessMoveRepository.save(game.addMove(OffsetDateTime.now(), "e5"));
+        chessPositionService.updateMovePositions();
+
+        Assertions.assertThat(chessPositionService.getGameAnalysis(game.getId()).getMovesAnalysis()).isEmpty();
+
+        List<ChessClubPosition> positions = chessPositionRepository.findAll();
+        Assertions.assertThat(positions).hasSize(2);
+        scorePosition(positions.get(0), 30);
+
+        ChessAnalysis partialAnalysis = chessPositionService.getGameAnalysis(game.getId());
+        Assertions.assertThat(partialAnalysis.getMovesAnalysis()).extracting(ChessAnalysisMove::getIndex)
+                .containsExactly(0);
+        Assertions.assertThat(partialAnalysis.getMovesAnalysis()).extracting(ChessAnalysisMove::getScore)
+                .containsExactly(30);
+
+        scorePosition(positions.get(1), 20);
+
+        ChessAnalysis analysis = chessPositionService.getGameAnalysis(game.getId());
+        Assertions.assertThat(analysis.getGameId()).isEqualTo(game.getId());
+        Assertions.assertThat(analysis.getMovesAnalysis()).extracting(ChessAnalysisMove::getScore)
+                .containsExactly(30, 20);
+
+        // The analysis of a finished and fully scored game is cached
+        scorePosition(positions.get(1), 10);
+        Assertions.assertThat(chessPositionService.getGameAnalysis(game.getId())).isSameAs(analysis);
+    }
+
+    private void scorePosition(ChessClubPosition position, int score) {
+        position.setScore(score);
+        position.setExpected("Nf3");
+        chessPositionRepository.saveAndFlush(position);
     }
 
     @Test
@@ -135,5 +249,64 @@ public class ChessPositionServiceTest {
         Assertions.assertThat(clubPosition3.getText()).isEqualTo(positionText3);
         Assertions.assertThat(chessPositionRepository.findAll()).hasSize(3);
     }
-}
 
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testCachedIdMismatch() {
+        String positionText1 = "wR-BQ-RK-PPPP--PP--N--N----B-Pp--------p---p-----pp-pqpbprnb-k-nr--kq-";
+        String positionText2 = "wRNBQKB-RPPPP--PP-----N------Pp--------p---------pppp-p-prnbqkbnrKQkqg";
+
+        // Simulate a hash collision by caching the identifier of another position
+        ChessClubPosition position1 = chessPositionService.findOrCreatePosition(positionText1);
+        chessPositionIdCache.put(ZobristHash.hash(positionText2), ZobristHash.check(positionText1), position1.getId());
+
+        ChessClubPosition position2 = chessPositionService.findOrCreatePosition(positionText2);
+        Assertions.assertThat(position2.getId()).isNotEqualTo(position1.getId());
+        Assertions.assertThat(position2.getText()).isEqualTo(positionText2);
+        Assertions.assertThat(chessPositionIdCache.get(
+                ZobristHash.hash(positionText2), ZobristHash.check(positionText2))).isEqualTo(position2.getId());
+
+        // Cache hits return references, only usable within a transaction
+        Assertions.assertThat(new TransactionTemplate(transactionManager).execute(
+                status -> chessPositionService.findOrCreatePosition(positionText1).getText()))
+                .isEqualTo(positionText1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testMigrateTextPositions() {
+        String positionText = "wRNBQKB-RPPPP--PP-----N------Pp--------p---------pppp-p-prnbqkbnrKQkqg";
+        jdbcTemplate.update("INSERT INTO chessposition (id, text) VALUES (?, ?)", 1000L, positionText);
+
+        Assertions.assertThat(chessPositionService.updatePositionHashes()).isEqualTo(1L);
+        Assertions.assertThat(chessPositionService.packPositions()).isEqualTo(1L);
+        Assertions.assertThat(chessPositionService.packPositions()).isEqualTo(0L);
+
+        ChessClubPosition position = chessPositionService.findOrCreatePosition(positionText);
+        Assertions.assertThat(position.getId()).isEqualTo(1000L);
+        Assertions.assertThat(position.getText()).isEqualTo(positionText);
+        Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chessposition WHERE text IS NULL", Long.class)).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional
+    public void testPackedPositionSize() throws IOException {
+        ClassPathResource cpr = new ClassPathResource("samples-pgn/McDonnell.pgn");
+        pgnImportProcessor.process(cpr.getFile());
+
+        long textBytes = 0;
+        long packedBytes = 0;
+
+        for (ChessClubPosition position : chessPositionRepository.findAll()) {
+            byte[] packed = PositionCodec.encode(position.getText());
+            Assertions.assertThat(PositionCodec.decode(packed)).isEqualTo(position.getText());
+            textBytes += position.getText().length();
+            packedBytes += packed.length;
+        }
+
+        // 7246 positions take 507220 bytes as text, packing must save at least half of it
+        Assertions.assertThat(textBytes).isEqualTo(507220L);
+        Assertions.assertThat(packedBytes).isLessThan(textBytes / 2);
+    }
+}
@@ -0,0 +1,82 @@
+package org.chesscorp.club.service;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.people.ClubPlayer;
+import org.chesscorp.club.model.people.Player;
+import org.chesscorp.club.persistence.ChessGameRepository;
+import org.chesscorp.club.persistence.ChessMoveRepository;
+import org.chesscorp.club.persistence.EloRatingRepository;
+import org.chesscorp.club.persistence.PlayerRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Rollback
+public class EloRatingServiceTest {
+
+    @Autowired
+    private EloRatingService eloRatingService;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private ChessGameRepository chessGameRepository;
+
+    @Autowired
+    private ChessMoveRepository chessMoveRepository;
+
+    @Autowired
+    private EloRatingRepository eloRatingRepository;
+
+    @Test
+    @Transactional
+    public void testRateImportedGames() {
+        Player p1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player p2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        // Games are rated by date, not by creation order
+        ChessGame later = saveFinishedGame(p2, p1, ChessGameStatus.WHITEWON, OffsetDateTime.now());
+        ChessGame earlier = saveFinishedGame(p1, p2, ChessGameStatus.WHITEWON, OffsetDateTime.now().minusDays(1));
+        saveFinishedGame(p1, p2, ChessGameStatus.OPEN, OffsetDateTime.now());
+
+        Assertions.assertThat(eloRatingService.rateGames()).isGreaterThanOrEqualTo(2);
+        assertRatings(p1, p2);
+        Assertions.assertThat(eloRatingService.rateGames()).isEqualTo(0);
+
+        Assertions.assertThat(eloRatingService.rebuildRatings()).isGreaterThanOrEqualTo(2);
+        assertRatings(p1, p2);
+        Assertions.assertThat(eloRatingRepository.findByPlayerIdOrderByScoreDateAsc(p1.getId()))
+                .extracting(r -> r.getChessGame().getId()).containsExactly(earlier.getId(), later.getId());
+    }
+
+    private void assertRatings(Player p1, Player p2) {
+        // 1200 vs 1200 won by p1, then 1190 vs 1210 won by p2
+        Assertions.assertThat(eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(p1.getId()).getEloRating())
+                .isEqualTo(1199);
+        Assertions.assertThat(eloRatingRepository.findFirstByPlayerIdOrderByIdDesc(p2.getId()).getEloRating())
+                .isEqualTo(1201);
+        Assertions.assertThat(eloRatingRepository.countByPlayerId(p1.getId())).isEqualTo(2);
+    }
+
+    private ChessGame saveFinishedGame(Player white, Player black, ChessGameStatus status, OffsetDateTime date) {
+        ChessGame game = new ChessGame(white, black, new ArrayList<>(), status, date);
+        game.addMove(date, "e4");
+        game.addMove(date, "e5");
+        game = chessGameRepository.save(game);
+        game.getMoves().forEach(chessMoveRepository::save);
+        return game;
+    }
+}
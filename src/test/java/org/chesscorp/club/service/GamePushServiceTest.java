@@ -0,0 +1,58 @@
+package org.chesscorp.club.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.people.Player;
+import org.chesscorp.club.monitoring.PerformanceMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Test game updates fan out.
+ */
+public class GamePushServiceTest {
+
+    private GamePushService gamePushService;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private PerformanceMonitor performanceMonitor;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        gamePushService = new GamePushServiceImpl(objectMapper, performanceMonitor, 60_000);
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        Player white = Mockito.mock(Player.class);
+        Mockito.when(white.getId()).thenReturn(1L);
+        Player black = Mockito.mock(Player.class);
+        Mockito.when(black.getId()).thenReturn(2L);
+
+        ChessGame game = Mockito.mock(ChessGame.class);
+        Mockito.when(game.getId()).thenReturn(42L);
+        Mockito.when(game.getWhitePlayer()).thenReturn(white);
+        Mockito.when(game.getBlackPlayer()).thenReturn(black);
+        Mockito.when(objectMapper.writeValueAsString(game)).thenReturn("{}");
+
+        gamePushService.publish(game);
+        Mockito.verify(performanceMonitor, Mockito.never()).increment(Mockito.anyString(), Mockito.anyString());
+
+        gamePushService.watchGame(42L);
+        gamePushService.watchGame(43L);
+        gamePushService.watchPlayer(1L);
+        gamePushService.watchPlayer(2L);
+        gamePushService.watchPlayer(3L);
+
+        gamePushService.publish(game);
+        Mockito.verify(objectMapper, Mockito.times(2)).writeValueAsString(game);
+        Mockito.verify(performanceMonitor, Mockito.times(3)).increment("GamePushService", "sent");
+    }
+}
@@ -5,11 +5,13 @@ import org.assertj.core.api.Assertions;
 import org.chesscorp.club.Application;
 import org.chesscorp.club.dto.PlayerProfile;
 import org.chesscorp.club.model.game.ChessGame;
+import org.chesscorp.club.model.game.EloRating;
 import org.chesscorp.club.model.people.ClubPlayer;
 import org.chesscorp.club.model.people.ExternalPlayer;
 import org.chesscorp.club.model.people.Player;
 import org.chesscorp.club.model.people.RobotPlayer;
 import org.chesscorp.club.persistence.ChessGameRepository;
+import org.chesscorp.club.persistence.EloRatingRepository;
 import org.chesscorp.club.persistence.PlayerRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,6 +35,9 @@ public class PlayerServiceTest {
     @Autowired
     private ChessGameRepository chessGameRepository;
 
+    @Autowired
+    private EloRatingRepository eloRatingRepository;
+
     @Autowired
     private PlayerService playerService;
 
@@ -99,4 +104,22 @@ public class PlayerServiceTest {
         Assertions.assertThat(playerService.searchOpponents(player1.getId())).hasSize(2)
                 .extracting("id").doesNotContain(player1.getId());
     }
+
+    @Test
+    @Transactional
+    public void testCheckRatings() {
+        Player player1 = playerRepository.save(new ClubPlayer("Player 1"));
+        Player player2 = playerRepository.save(new ClubPlayer("Player 2"));
+
+        // Ratings recorded without updating the players, as done by previous releases
+        ChessGame game = chessGameRepository.save(new ChessGame(player1, player2));
+        eloRatingRepository.save(new EloRating(player1, game, 1210));
+        eloRatingRepository.save(new EloRating(player2, game, 1190));
+
+        Assertions.assertThat(playerService.checkRatings()).isGreaterThanOrEqualTo(2);
+        Assertions.assertThat(playerRepository.findOne(player1.getId()).getEloRating()).isEqualTo(1210);
+        Assertions.assertThat(playerRepository.findOne(player2.getId()).getGamesPlayed()).isEqualTo(1);
+
+        Assertions.assertThat(playerService.checkRatings()).isEqualTo(0);
+    }
 }
@@ -0,0 +1,83 @@
+package org.chesscorp.club.service.factories;
+
+import org.assertj.core.api.Assertions;
+import org.chesscorp.club.Application;
+import org.chesscorp.club.dto.ExternalPlayerReference;
+import org.chesscorp.club.model.people.ExternalPlayer;
+import org.chesscorp.club.persistence.PlayerRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Rollback
+public class PlayerFactoryTest {
+
+    @Autowired
+    private PlayerFactory playerFactory;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional
+    public void testFindOrCreate() {
+        ExternalPlayer player = playerFactory.findOrCreateExternalPlayer("José Raúl Capablanca");
+
+        Assertions.assertThat(player.getId()).isNotNull();
+        Assertions.assertThat(playerFactory.findOrCreateExternalPlayer("José Raúl Capablanca")).isSameAs(player);
+        Assertions.assertThat(playerFactory.findOrCreateExternalPlayer("José Raúl Capablanca:Cuba")).isSameAs(player);
+        Assertions.assertThat(playerFactory.findOrCreateExternalPlayer("Jose Raul Capablanca").getId())
+                .isEqualTo(player.getId());
+        Assertions.assertThat(playerFactory.findOrCreateExternalPlayer("Emanuel Lasker").getId())
+                .isNotEqualTo(player.getId());
+
+        ExternalPlayerReference reference = playerFactory.findOrCreateExternalPlayerReference("José Raúl Capablanca");
+        Assertions.assertThat(reference.getId()).isEqualTo(player.getId());
+        Assertions.assertThat(reference.getNormalizedName()).isEqualTo(player.getNormalizedName());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NEVER)
+    public void testCacheOnCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        ExternalPlayerReference rolledBack = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return playerFactory.findOrCreateExternalPlayerReference("Cached Factory Player");
+        });
+
+        ExternalPlayerReference committed = transactionTemplate.execute(
+                status -> playerFactory.findOrCreateExternalPlayerReference("Cached Factory Player"));
+
+        Assertions.assertThat(playerRepository.findOne(rolledBack.getId())).isNull();
+        Assertions.assertThat(committed.getId()).isNotEqualTo(rolledBack.getId());
+        Assertions.assertThat(transactionTemplate.execute(
+                status -> playerFactory.findOrCreateExternalPlayerReference("Cached Factory Player")))
+                .isSameAs(committed);
+
+        // Deleted players are evicted
+        playerRepository.delete(committed.getId());
+
+        ExternalPlayerReference recreated = transactionTemplate.execute(
+                status -> playerFactory.findOrCreateExternalPlayerReference("Cached Factory Player"));
+
+        try {
+            Assertions.assertThat(recreated.getId()).isNotEqualTo(committed.getId());
+            Assertions.assertThat(playerRepository.findOne(recreated.getId())).isNotNull();
+        } finally {
+            playerRepository.delete(recreated.getId());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.chesscorp.club.utilities.collections;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        LongIntHashMap map = new LongIntHashMap();
+        Assertions.assertThat(map.get(42L, -1)).isEqualTo(-1);
+        Assertions.assertThat(map.containsKey(42L)).isFalse();
+
+        map.put(42L, 1200);
+        map.put(0L, 0);
+        map.put(-7L, 7);
+        Assertions.assertThat(map.get(42L, -1)).isEqualTo(1200);
+        Assertions.assertThat(map.get(0L, -1)).isEqualTo(0);
+        Assertions.assertThat(map.get(-7L, -1)).isEqualTo(7);
+        Assertions.assertThat(map.size()).isEqualTo(3);
+
+        map.put(42L, 1210);
+        Assertions.assertThat(map.get(42L, -1)).isEqualTo(1210);
+        Assertions.assertThat(map.add(42L, -20, 0)).isEqualTo(1190);
+        Assertions.assertThat(map.add(43L, 1, 0)).isEqualTo(1);
+        Assertions.assertThat(map.size()).isEqualTo(4);
+
+        map.clear();
+        Assertions.assertThat(map.size()).isEqualTo(0);
+        Assertions.assertThat(map.containsKey(42L)).isFalse();
+    }
+
+    @Test
+    public void testGrowth() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        for (long key = 0; key < 100_000; key++) {
+            map.put(key * 1024, (int) key);
+        }
+
+        Assertions.assertThat(map.size()).isEqualTo(100_000);
+
+        for (long key = 0; key < 100_000; key++) {
+            Assertions.assertThat(map.get(key * 1024, -1)).isEqualTo((int) key);
+        }
+
+        Assertions.assertThat(map.get(1023, -1)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,81 @@
+package org.chesscorp.club.utilities.collections;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongLongLruMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        LongLongLruMap map = new LongLongLruMap(10);
+        Assertions.assertThat(map.get(42L, ~42L, -1)).isEqualTo(-1);
+
+        map.put(42L, ~42L, 1200L);
+        map.put(-7L, ~-7L, 7L);
+        Assertions.assertThat(map.get(42L, ~42L, -1)).isEqualTo(1200L);
+        Assertions.assertThat(map.get(-7L, ~-7L, -1)).isEqualTo(7L);
+        Assertions.assertThat(map.size()).isEqualTo(2);
+
+        map.put(42L, ~42L, 1210L);
+        Assertions.assertThat(map.get(42L, ~42L, -1)).isEqualTo(1210L);
+        Assertions.assertThat(map.size()).isEqualTo(2);
+
+        // Lookups with another check miss, a new check replaces the previous one
+        Assertions.assertThat(map.get(42L, 0L, -1)).isEqualTo(-1);
+        map.put(42L, 0L, 1220L);
+        Assertions.assertThat(map.get(42L, 0L, -1)).isEqualTo(1220L);
+        Assertions.assertThat(map.get(42L, ~42L, -1)).isEqualTo(-1);
+        Assertions.assertThat(map.size()).isEqualTo(2);
+
+        map.clear();
+        Assertions.assertThat(map.size()).isEqualTo(0);
+        Assertions.assertThat(map.get(42L, ~42L, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testEviction() {
+        LongLongLruMap map = new LongLongLruMap(3);
+        map.put(1L, ~1L, 10L);
+        map.put(2L, ~2L, 20L);
+        map.put(3L, ~3L, 30L);
+        map.get(1L, ~1L, -1);
+        map.put(4L, ~4L, 40L);
+
+        Assertions.assertThat(map.size()).isEqualTo(3);
+        Assertions.assertThat(map.get(2L, ~2L, -1)).isEqualTo(-1);
+        Assertions.assertThat(map.get(1L, ~1L, -1)).isEqualTo(10L);
+        Assertions.assertThat(map.get(3L, ~3L, -1)).isEqualTo(30L);
+        Assertions.assertThat(map.get(4L, ~4L, -1)).isEqualTo(40L);
+    }
+
+    @Test
+    public void testAgainstLinkedHashMap() {
+        int maxSize = 100;
+        LongLongLruMap map = new LongLongLruMap(maxSize);
+        Map<Long, Long> reference = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(300) * 1024L;
+
+            if (random.nextBoolean()) {
+                map.put(key, ~key, i);
+                reference.put(key, (long) i);
+            } else {
+                Long expected = reference.get(key);
+                Assertions.assertThat(map.get(key, ~key, -1)).isEqualTo(expected == null ? -1 : expected);
+            }
+        }
+
+        Assertions.assertThat(map.size()).isEqualTo(reference.size());
+    }
+}
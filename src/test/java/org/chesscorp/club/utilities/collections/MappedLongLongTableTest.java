@@ -0,0 +1,97 @@
+package org.chesscorp.club.utilities.collections;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Memory mapped table tests.
+ */
+public class MappedLongLongTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        try (MappedLongLongTable table = new MappedLongLongTable(folder.newFile().toPath(), 100)) {
+            Assertions.assertThat(table.getCapacity()).isEqualTo(128);
+            Assertions.assertThat(table.get(42L, 0L, -1L)).isEqualTo(-1L);
+
+            Assertions.assertThat(table.put(42L, 10L, 1L)).isTrue();
+            Assertions.assertThat(table.put(0L, 0L, 2L)).isTrue();
+            Assertions.assertThat(table.put(-7L, -70L, 3L)).isTrue();
+            Assertions.assertThat(table.put(42L, 11L, 4L)).isTrue();
+
+            Assertions.assertThat(table.get(42L, 11L, -1L)).isEqualTo(4L);
+            Assertions.assertThat(table.get(0L, 0L, -1L)).isEqualTo(2L);
+            Assertions.assertThat(table.get(-7L, -70L, -1L)).isEqualTo(3L);
+
+            // Lookups with another check miss
+            Assertions.assertThat(table.get(42L, 10L, -1L)).isEqualTo(-1L);
+            Assertions.assertThat(table.get(-7L, 0L, -1L)).isEqualTo(-1L);
+            Assertions.assertThat(table.size()).isEqualTo(3);
+            Assertions.assertThat(table.getMaxValue()).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    public void testFull() throws IOException {
+        try (MappedLongLongTable table = new MappedLongLongTable(folder.newFile().toPath(), 16)) {
+            for (long key = 0; key < 12; key++) {
+                Assertions.assertThat(table.put(key, key, key + 1)).isTrue();
+            }
+
+            Assertions.assertThat(table.put(12L, 12L, 13L)).isFalse();
+            Assertions.assertThat(table.get(12L, 12L, -1L)).isEqualTo(-1L);
+            Assertions.assertThat(table.put(11L, 11L, 100L)).isTrue();
+            Assertions.assertThat(table.size()).isEqualTo(12);
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Path file = folder.newFile().toPath();
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(0);
+
+        try (MappedLongLongTable table = new MappedLongLongTable(file, 4096)) {
+            for (int i = 0; i < 2000; i++) {
+                long key = random.nextLong();
+                long value = 1 + random.nextInt(1_000_000);
+                table.put(key, ~key, value);
+                reference.put(key, value);
+            }
+        }
+
+        try (MappedLongLongTable table = new MappedLongLongTable(file, 4096)) {
+            Assertions.assertThat(table.size()).isEqualTo(reference.size());
+            reference.forEach((key, value) -> Assertions.assertThat(table.get(key, ~key, -1L)).isEqualTo(value));
+
+            long[] visited = new long[1];
+            table.forEach((key, check, value) -> {
+                Assertions.assertThat(check).isEqualTo(~key);
+                Assertions.assertThat(value).isEqualTo(reference.get(key));
+                return ++visited[0] < 100;
+            });
+            Assertions.assertThat(visited[0]).isEqualTo(100);
+            Assertions.assertThat(table.getMaxValue()).isEqualTo(reference.values().stream().mapToLong(v -> v).max()
+                    .getAsLong());
+
+            table.clear();
+            Assertions.assertThat(table.size()).isEqualTo(0);
+        }
+
+        // A table reopened with another capacity starts empty
+        try (MappedLongLongTable table = new MappedLongLongTable(file, 8192)) {
+            Assertions.assertThat(table.size()).isEqualTo(0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.chesscorp.club.utilities.hash;
+
+import org.alcibiade.chess.model.ChessGameStatus;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+public class GameFingerprintTest {
+
+    @Test
+    public void testFingerprint() {
+        OffsetDateTime date = OffsetDateTime.of(2016, 1, 2, 0, 0, 0, 0, ZoneOffset.UTC);
+        List<String> moves = Arrays.asList("e4", "e5", "Nf3");
+        String fingerprint = GameFingerprint.compute("alpha", "beta", date, ChessGameStatus.WHITEWON, moves);
+
+        Assertions.assertThat(fingerprint).hasSize(64).matches("[0-9a-f]+");
+        Assertions.assertThat(GameFingerprint.compute("alpha", "beta",
+                date.withOffsetSameInstant(ZoneOffset.ofHours(2)), ChessGameStatus.WHITEWON, moves))
+                .isEqualTo(fingerprint);
+
+        Assertions.assertThat(GameFingerprint.compute("beta", "alpha", date, ChessGameStatus.WHITEWON, moves))
+                .isNotEqualTo(fingerprint);
+        Assertions.assertThat(GameFingerprint.compute("alpha", "beta", date.plusDays(1), ChessGameStatus.WHITEWON,
+                moves)).isNotEqualTo(fingerprint);
+        Assertions.assertThat(GameFingerprint.compute("alpha", "beta", date, ChessGameStatus.PAT, moves))
+                .isNotEqualTo(fingerprint);
+        Assertions.assertThat(GameFingerprint.compute("alpha", "beta", date, ChessGameStatus.WHITEWON,
+                Arrays.asList("e4", "e5"))).isNotEqualTo(fingerprint);
+    }
+}
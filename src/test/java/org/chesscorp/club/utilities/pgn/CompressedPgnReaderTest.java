@@ -0,0 +1,129 @@
+package org.chesscorp.club.utilities.pgn;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compressed PGN reader tests, checked against the sequential reader on the uncompressed files.
+ */
+public class CompressedPgnReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGzip() throws IOException {
+        byte[] pgn = readSample("McDonnell.pgn");
+        Path file = folder.newFile("McDonnell.pgn.gz").toPath();
+
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(pgn);
+        }
+
+        try (CompressedPgnReader reader = new CompressedPgnReader(file)) {
+            Assertions.assertThat(readAll(reader)).hasSize(106).containsExactlyElementsOf(readSequentially(pgn));
+        }
+    }
+
+    @Test
+    public void testBzip2() throws IOException {
+        byte[] pgn = readSample("McDonnell.pgn");
+        Path file = folder.newFile("McDonnell.PGN.BZ2").toPath();
+
+        try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(file))) {
+            out.write(pgn);
+        }
+
+        try (CompressedPgnReader reader = new CompressedPgnReader(file)) {
+            Assertions.assertThat(readAll(reader)).hasSize(106).containsExactlyElementsOf(readSequentially(pgn));
+        }
+    }
+
+    @Test
+    public void testZipBundle() throws IOException {
+        byte[] pgn1 = readSample("McDonnell.pgn");
+        byte[] pgn2 = readSample("DeLaBourdonnais.pgn");
+        Path file = folder.newFile("bundle.zip").toPath();
+
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("README.txt"));
+            out.write("Not a game".getBytes("UTF-8"));
+            out.putNextEntry(new ZipEntry("games/"));
+            out.putNextEntry(new ZipEntry("games/McDonnell.pgn"));
+            out.write(pgn1);
+            out.putNextEntry(new ZipEntry("games/empty.pgn"));
+            out.putNextEntry(new ZipEntry("games/DeLaBourdonnais.pgn"));
+            out.write(pgn2);
+        }
+
+        List<String> expected = readSequentially(pgn1);
+        expected.addAll(readSequentially(pgn2));
+
+        try (CompressedPgnReader reader = new CompressedPgnReader(file)) {
+            Assertions.assertThat(readAll(reader)).containsExactlyElementsOf(expected);
+            Assertions.assertThat(reader.readGame()).isNull();
+        }
+    }
+
+    @Test
+    public void testSupportedFormats() {
+        Assertions.assertThat(CompressedPgnReader.isCompressed("games.pgn.gz")).isTrue();
+        Assertions.assertThat(CompressedPgnReader.isCompressed("games.pgn.bz2")).isTrue();
+        Assertions.assertThat(CompressedPgnReader.isCompressed("GAMES.ZIP")).isTrue();
+        Assertions.assertThat(CompressedPgnReader.isCompressed("games.pgn")).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat() throws IOException {
+        new CompressedPgnReader(folder.newFile("games.pgn.zst").toPath());
+    }
+
+    private byte[] readSample(String name) throws IOException {
+        return Files.readAllBytes(new ClassPathResource("samples-pgn/" + name).getFile().toPath());
+    }
+
+    private List<String> readSequentially(byte[] pgn) throws IOException {
+        List<String> games = new ArrayList<>();
+        PgnBookReader bookReader = new PgnBookReader(new ByteArrayInputStream(pgn));
+        PgnGameModel pgnGameModel;
+
+        while ((pgnGameModel = bookReader.readGame()) != null) {
+            games.add(describe(pgnGameModel));
+        }
+
+        return games;
+    }
+
+    private List<String> readAll(PgnGameReader reader) throws IOException {
+        List<String> games = new ArrayList<>();
+        PgnGameModel pgnGameModel;
+
+        while ((pgnGameModel = reader.readGame()) != null) {
+            games.add(describe(pgnGameModel));
+        }
+
+        return games;
+    }
+
+    private String describe(PgnGameModel pgnGameModel) {
+        return pgnGameModel.getWhitePlayerName() + " - " + pgnGameModel.getBlackPlayerName() + " "
+                + pgnGameModel.getResult() + " " + pgnGameModel.getMoves();
+    }
+}
@@ -0,0 +1,91 @@
+package org.chesscorp.club.utilities.pgn;
+
+import org.alcibiade.chess.persistence.PgnBookReader;
+import org.alcibiade.chess.persistence.PgnGameModel;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parallel PGN reader tests, checked against the sequential reader.
+ */
+public class MappedPgnReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameGamesAsSequentialReader() throws IOException {
+        Path file = new ClassPathResource("samples-pgn/McDonnell.pgn").getFile().toPath();
+        List<String> expected = readSequentially(file);
+        Assertions.assertThat(expected).hasSize(106);
+
+        // From one chunk per game to a single chunk for the whole file
+        for (int chunkSize : new int[]{1, 100, 4096, 1 << 20}) {
+            try (MappedPgnReader reader = new MappedPgnReader(file, 3, chunkSize)) {
+                Assertions.assertThat(readAll(reader)).containsExactlyElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        try (MappedPgnReader reader = new MappedPgnReader(folder.newFile().toPath(), 2, 1024)) {
+            Assertions.assertThat(reader.readGame()).isNull();
+            Assertions.assertThat(reader.readGame()).isNull();
+        }
+    }
+
+    @Test
+    public void testCrLfLineBreaks() throws IOException {
+        Path source = new ClassPathResource("samples-pgn/DeLaBourdonnais.pgn").getFile().toPath();
+        Path file = folder.newFile().toPath();
+        String content = new String(Files.readAllBytes(source), "UTF-8").replace("\r\n", "\n").replace("\n", "\r\n");
+        Files.write(file, content.getBytes("UTF-8"));
+
+        try (MappedPgnReader reader = new MappedPgnReader(file, 2, 512)) {
+            Assertions.assertThat(readAll(reader)).containsExactlyElementsOf(readSequentially(file));
+        }
+    }
+
+    private List<String> readSequentially(Path file) throws IOException {
+        List<String> games = new ArrayList<>();
+
+        try (InputStream pgnStream = new FileInputStream(file.toFile())) {
+            PgnBookReader bookReader = new PgnBookReader(pgnStream);
+            PgnGameModel pgnGameModel;
+
+            while ((pgnGameModel = bookReader.readGame()) != null) {
+                games.add(describe(pgnGameModel));
+            }
+        }
+
+        return games;
+    }
+
+    private List<String> readAll(MappedPgnReader reader) throws IOException {
+        List<String> games = new ArrayList<>();
+        PgnGameModel pgnGameModel;
+
+        while ((pgnGameModel = reader.readGame()) != null) {
+            games.add(describe(pgnGameModel));
+        }
+
+        return games;
+    }
+
+    private String describe(PgnGameModel pgnGameModel) {
+        return pgnGameModel.getWhitePlayerName() + " - " + pgnGameModel.getBlackPlayerName() + " "
+                + pgnGameModel.getResult() + " " + pgnGameModel.getMoves();
+    }
+}
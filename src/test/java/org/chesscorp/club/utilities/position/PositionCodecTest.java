@@ -0,0 +1,42 @@
+package org.chesscorp.club.utilities.position;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class PositionCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        String[] positions = {
+                "wRNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnrKQkq-",
+                "bR-BQ-K-RPPP---PP--N--B-----P---q-----p----Pb----pp--n-pprn--k--r--kq-",
+                "wRNBQKB-RPPPP--PP-----N------Pp--------p---------pppp-p-prnbqkbnrKQkqg",
+                "w----K-------------------------------------------------------k--------"
+        };
+
+        for (String position : positions) {
+            Assertions.assertThat(PositionCodec.canEncode(position)).isTrue();
+            byte[] packed = PositionCodec.encode(position);
+            Assertions.assertThat(packed.length).isLessThanOrEqualTo(PositionCodec.MAX_LENGTH);
+            Assertions.assertThat(PositionCodec.decode(packed)).isEqualTo(position);
+        }
+
+        Assertions.assertThat(PositionCodec.encode(positions[0])).hasSize(PositionCodec.MAX_LENGTH);
+        Assertions.assertThat(PositionCodec.encode(positions[3])).hasSize(11);
+    }
+
+    @Test
+    public void testInvalidPositions() {
+        Assertions.assertThat(PositionCodec.canEncode("xxxxx")).isFalse();
+        Assertions.assertThat(PositionCodec.canEncode(null)).isFalse();
+        Assertions.assertThat(PositionCodec.canEncode(
+                "xRNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnrKQkq-")).isFalse();
+        Assertions.assertThat(PositionCodec.canEncode(
+                "wRNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnrKQkqz")).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeInvalid() {
+        PositionCodec.encode("xxxxx");
+    }
+}
@@ -0,0 +1,35 @@
+package org.chesscorp.club.utilities.position;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ZobristHashTest {
+    private static final String INITIAL = "wRNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnrKQkq-";
+    private static final String AFTER_E4 = "bRNBQKBNRPPPP-PPP----P---------------------------pppppppprnbqkbnrKQkqe";
+
+    @Test
+    public void testStableHash() {
+        Assertions.assertThat(ZobristHash.hash(INITIAL)).isEqualTo(ZobristHash.hash(INITIAL));
+        Assertions.assertThat(ZobristHash.hash(INITIAL)).isNotEqualTo(ZobristHash.hash(AFTER_E4));
+        Assertions.assertThat(ZobristHash.hash(INITIAL)).isNotEqualTo(ZobristHash.hash("b" + INITIAL.substring(1)));
+        Assertions.assertThat(ZobristHash.hash("xxxxx")).isEqualTo(ZobristHash.hash("xxxxx"));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        long hash = ZobristHash.hash(INITIAL);
+
+        for (int offset = 0; offset < ZobristHash.POSITION_LENGTH; offset++) {
+            hash = ZobristHash.update(hash, offset, INITIAL.charAt(offset), AFTER_E4.charAt(offset));
+        }
+
+        Assertions.assertThat(hash).isEqualTo(ZobristHash.hash(AFTER_E4));
+    }
+
+    @Test
+    public void testIndependentCheck() {
+        Assertions.assertThat(ZobristHash.check(INITIAL)).isEqualTo(ZobristHash.check(INITIAL));
+        Assertions.assertThat(ZobristHash.check(INITIAL)).isNotEqualTo(ZobristHash.check(AFTER_E4));
+        Assertions.assertThat(ZobristHash.check(INITIAL)).isNotEqualTo(ZobristHash.hash(INITIAL));
+    }
+}